@@ -0,0 +1,70 @@
+package pl.codeset.textbundle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.codeset.textbundle.Asset;
+import pl.codeset.textbundle.TextBundle;
+import pl.codeset.textbundle.TextBundleDir;
+import pl.codeset.textbundle.TextPack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding unreferenced assets. Runs as a dry run, so every invocation sees the same bundle; half of the generated
+ * assets are unreferenced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimizeBenchmark {
+
+    @Param({"dir", "pack"})
+    public String bundleType;
+
+    @Param({"10", "500"})
+    public int assetCount;
+
+    @Param({"4096", "4194304"})
+    public int contentSize;
+
+    private Path tempDir;
+    private Path bundlePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("textbundle-optimize");
+        bundlePath = "dir".equals(bundleType)
+                ? SyntheticBundles.createBundleDir(tempDir.resolve("source.textbundle"), assetCount, 1024, contentSize, false)
+                : SyntheticBundles.createTextPack(tempDir.resolve("source.textpack"), assetCount, 1024, contentSize, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticBundles.deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public Set<Asset> optimizeDryRun() throws Exception {
+        try (TextBundle bundle = "dir".equals(bundleType) ? new TextBundleDir(bundlePath) : new TextPack(bundlePath)) {
+            return bundle.optimize(true);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package pl.codeset.textbundle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.codeset.textbundle.TextBundleDir;
+import pl.codeset.textbundle.TextPack;
+import pl.codeset.textbundle.TextPackReader;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing a bundle directory into a pack and unpacking it back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackBenchmark {
+
+    @Param({"10", "200"})
+    public int assetCount;
+
+    @Param({"65536", "1048576"})
+    public int assetSize;
+
+    @Param({"true", "false"})
+    public boolean compressible;
+
+    private Path tempDir;
+    private Path bundleDir;
+    private Path textPack;
+    private Path target;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("textbundle-pack");
+        bundleDir = SyntheticBundles.createBundleDir(tempDir.resolve("source.textbundle"),
+                assetCount, assetSize, 16 * 1024, compressible);
+        textPack = SyntheticBundles.createTextPack(tempDir.resolve("source.textpack"),
+                assetCount, assetSize, 16 * 1024, compressible);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Setup(Level.Invocation)
+    public void newTarget() throws IOException {
+        target = Files.createTempDirectory(tempDir, "target").resolve("target");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteTarget() throws IOException {
+        SyntheticBundles.deleteRecursively(target.getParent());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        SyntheticBundles.deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public Path packTo() throws IOException {
+        try (TextBundleDir dir = new TextBundleDir(bundleDir)) {
+            dir.packTo(target);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Path packToParallel() throws IOException {
+        try (TextBundleDir dir = new TextBundleDir(bundleDir)) {
+            dir.packTo(target, executor);
+        }
+        return target;
+    }
+
+    /**
+     * Baseline: packing the way {@code TextBundleDir.packTo} did before {@code TextPackWriter}, by copying files
+     * into a mounted zip file system.
+     */
+    @Benchmark
+    public Path packToZipFs() throws IOException {
+        Map<String, String> env = new HashMap<>();
+        env.put("create", "true");
+        URI uri = URI.create("jar:" + target.toUri());
+        try (FileSystem fileSystem = FileSystems.newFileSystem(uri, env)) {
+            Path zipRoot = fileSystem.getPath("source.textbundle");
+            Files.createDirectories(zipRoot);
+            Files.walkFileTree(bundleDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.copy(file, zipRoot.resolve(bundleDir.relativize(file).toString()),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(zipRoot.resolve(bundleDir.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Path unpackTextPack() throws IOException {
+        try (TextPack pack = new TextPack(textPack)) {
+            pack.unpackTo(target);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Path unpackTextPackReader() throws IOException {
+        try (TextPackReader reader = new TextPackReader(textPack)) {
+            reader.unpackTo(target);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Path unpackTextPackReaderParallel() throws IOException {
+        try (TextPackReader reader = new TextPackReader(textPack)) {
+            reader.unpackTo(target, executor);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Path copyTextPackReader() throws IOException {
+        try (TextPackReader reader = new TextPackReader(textPack)) {
+            reader.copyTo(target);
+        }
+        return target;
+    }
+}
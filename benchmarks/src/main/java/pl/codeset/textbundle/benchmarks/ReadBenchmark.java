@@ -0,0 +1,149 @@
+package pl.codeset.textbundle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.codeset.textbundle.Asset;
+import pl.codeset.textbundle.MetaData;
+import pl.codeset.textbundle.TextBundle;
+import pl.codeset.textbundle.TextBundleDir;
+import pl.codeset.textbundle.TextPack;
+import pl.codeset.textbundle.TextPackReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a bundle and reading its metadata, content and assets, for every bundle implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadBenchmark {
+
+    @Param({"dir", "pack", "reader"})
+    public String bundleType;
+
+    @Param({"10", "200"})
+    public int assetCount;
+
+    @Param({"4096", "1048576"})
+    public int contentSize;
+
+    private Path tempDir;
+    private Path bundlePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("textbundle-read");
+        if ("dir".equals(bundleType)) {
+            bundlePath = SyntheticBundles.createBundleDir(tempDir.resolve("source.textbundle"),
+                    assetCount, 16 * 1024, contentSize, false);
+        } else {
+            bundlePath = SyntheticBundles.createTextPack(tempDir.resolve("source.textpack"),
+                    assetCount, 16 * 1024, contentSize, false);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticBundles.deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public MetaData readMetaData() throws Exception {
+        if ("reader".equals(bundleType)) {
+            try (TextPackReader reader = new TextPackReader(bundlePath)) {
+                return reader.readMetaData();
+            }
+        }
+        try (TextBundle bundle = open()) {
+            return bundle.readMetaData();
+        }
+    }
+
+    @Benchmark
+    public byte[] readContent() throws Exception {
+        if ("reader".equals(bundleType)) {
+            try (TextPackReader reader = new TextPackReader(bundlePath)) {
+                return reader.readContent().getContent();
+            }
+        }
+        try (TextBundle bundle = open()) {
+            return bundle.readContent().getContent();
+        }
+    }
+
+    @Benchmark
+    public void readContentLines(Blackhole blackhole) throws Exception {
+        if ("reader".equals(bundleType)) {
+            try (TextPackReader reader = new TextPackReader(bundlePath);
+                 BufferedReader lines = reader.readContent().openReader()) {
+                consume(lines, blackhole);
+            }
+            return;
+        }
+        try (TextBundle bundle = open();
+             BufferedReader lines = bundle.readContent().openReader()) {
+            consume(lines, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void readAssets(Blackhole blackhole) throws Exception {
+        if ("reader".equals(bundleType)) {
+            try (TextPackReader reader = new TextPackReader(bundlePath)) {
+                for (Asset asset : reader.readAssets()) {
+                    blackhole.consume(asset.readContent());
+                }
+            }
+            return;
+        }
+        try (TextBundle bundle = open()) {
+            for (Asset asset : bundle.readAssets()) {
+                blackhole.consume(asset.readContent());
+            }
+        }
+    }
+
+    @Benchmark
+    public void listAssets(Blackhole blackhole) throws Exception {
+        if ("reader".equals(bundleType)) {
+            try (TextPackReader reader = new TextPackReader(bundlePath)) {
+                blackhole.consume(reader.readAssets());
+            }
+            return;
+        }
+        try (TextBundle bundle = open()) {
+            blackhole.consume(bundle.readAssets());
+        }
+    }
+
+    private TextBundle open() throws IOException {
+        return "dir".equals(bundleType) ? new TextBundleDir(bundlePath) : new TextPack(bundlePath);
+    }
+
+    private static void consume(BufferedReader lines, Blackhole blackhole) throws IOException {
+        String line;
+        while ((line = lines.readLine()) != null) {
+            blackhole.consume(line);
+        }
+    }
+}
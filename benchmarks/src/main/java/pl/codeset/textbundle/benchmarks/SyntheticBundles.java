@@ -0,0 +1,129 @@
+package pl.codeset.textbundle.benchmarks;
+
+import pl.codeset.textbundle.Asset;
+import pl.codeset.textbundle.ContentType;
+import pl.codeset.textbundle.MetaData;
+import pl.codeset.textbundle.TextBundleDir;
+import pl.codeset.textbundle.TextContent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Generates reproducible bundles: the same parameters and seed always give the same bytes.
+ */
+final class SyntheticBundles {
+
+    static final long SEED = 42;
+
+    private static final String[] WORDS = {
+            "lorem", "ipsum", "dolor", "sit", "amet", "bundle", "asset", "markdown", "pack", "note"
+    };
+
+    private SyntheticBundles() {
+    }
+
+    /**
+     * Creates a bundle directory with {@code assetCount} assets of {@code assetSize} bytes. Assets with even index
+     * are referenced from the content, the others are left for {@code optimize()} to remove.
+     *
+     * @param compressible text-like assets when {@code true}, random bytes (like images) otherwise
+     */
+    static Path createBundleDir(Path path, int assetCount, int assetSize, int contentSize, boolean compressible)
+            throws IOException {
+        Random random = new Random(SEED);
+        StringBuilder markdown = new StringBuilder("# Synthetic bundle\n\n");
+        for (int i = 0; i < assetCount; i += 2) {
+            markdown.append("![asset ").append(i).append("](assets/").append(assetName(i, compressible)).append(")\n");
+        }
+        while (markdown.length() < contentSize) {
+            markdown.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("pl.codeset.textbundle.benchmarks");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeMetaData(metaData);
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, markdown.toString()));
+            for (int i = 0; i < assetCount; i++) {
+                dir.writeAsset(new Asset(assetName(i, compressible), assetContent(random, assetSize, compressible)));
+            }
+        }
+        return path;
+    }
+
+    static Path createTextPack(Path path, int assetCount, int assetSize, int contentSize, boolean compressible)
+            throws IOException {
+        Path dir = Files.createTempDirectory("textbundle-source");
+        try {
+            createBundleDir(dir.resolve("source.textbundle"), assetCount, assetSize, contentSize, compressible);
+            try (TextBundleDir bundle = new TextBundleDir(dir.resolve("source.textbundle"))) {
+                bundle.packTo(path);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+        return path;
+    }
+
+    static byte[] assetContent(Random random, int size, boolean compressible) {
+        byte[] content = new byte[size];
+        if (!compressible) {
+            random.nextBytes(content);
+            return content;
+        }
+        int position = 0;
+        while (position < size) {
+            byte[] word = (WORDS[random.nextInt(WORDS.length)] + " ").getBytes(StandardCharsets.US_ASCII);
+            int length = Math.min(word.length, size - position);
+            System.arraycopy(word, 0, content, position, length);
+            position += length;
+        }
+        return content;
+    }
+
+    static String assetName(int index, boolean compressible) {
+        return "asset-" + index + (compressible ? ".txt" : ".png");
+    }
+
+    static void copyRecursively(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
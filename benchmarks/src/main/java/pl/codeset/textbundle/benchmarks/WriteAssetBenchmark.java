@@ -0,0 +1,122 @@
+package pl.codeset.textbundle.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.codeset.textbundle.Asset;
+import pl.codeset.textbundle.TextBundle;
+import pl.codeset.textbundle.TextBundleDir;
+import pl.codeset.textbundle.TextBundleEdit;
+import pl.codeset.textbundle.TextPack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing assets to an existing bundle, one by one and in a single edit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteAssetBenchmark {
+
+    @Param({"dir", "pack"})
+    public String bundleType;
+
+    @Param({"1024", "65536", "1048576"})
+    public int assetSize;
+
+    @Param({"1", "50"})
+    public int assetCount;
+
+    @Param({"true", "false"})
+    public boolean compressible;
+
+    private Path tempDir;
+    private Path source;
+    private Path bundlePath;
+    private List<Asset> assets;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("textbundle-write");
+        source = "dir".equals(bundleType)
+                ? SyntheticBundles.createBundleDir(tempDir.resolve("source.textbundle"), 20, 16 * 1024, 16 * 1024, true)
+                : SyntheticBundles.createTextPack(tempDir.resolve("source.textpack"), 20, 16 * 1024, 16 * 1024, true);
+        Random random = new Random(SyntheticBundles.SEED);
+        assets = new ArrayList<>();
+        for (int i = 0; i < assetCount; i++) {
+            String name = "written-" + SyntheticBundles.assetName(i, compressible);
+            assets.add(new Asset(name, SyntheticBundles.assetContent(random, assetSize, compressible)));
+        }
+    }
+
+    /**
+     * Every invocation writes to a fresh copy, so the bundle does not grow between invocations.
+     */
+    @Setup(Level.Invocation)
+    public void copySource() throws IOException {
+        Path directory = Files.createTempDirectory(tempDir, "invocation");
+        if ("dir".equals(bundleType)) {
+            bundlePath = directory.resolve("target.textbundle");
+            SyntheticBundles.copyRecursively(source, bundlePath);
+        } else {
+            bundlePath = directory.resolve("target.textpack");
+            Files.copy(source, bundlePath);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteCopy() throws IOException {
+        SyntheticBundles.deleteRecursively(bundlePath.getParent());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticBundles.deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public Path writeAsset() throws Exception {
+        try (TextBundle bundle = open()) {
+            for (Asset asset : assets) {
+                bundle.writeAsset(asset);
+            }
+        }
+        return bundlePath;
+    }
+
+    @Benchmark
+    public Path writeAssetInEdit() throws Exception {
+        try (TextBundle bundle = open()) {
+            TextBundleEdit edit = bundle.edit();
+            for (Asset asset : assets) {
+                edit.writeAsset(asset);
+            }
+            edit.commit();
+        }
+        return bundlePath;
+    }
+
+    private TextBundle open() throws IOException {
+        return "dir".equals(bundleType) ? new TextBundleDir(bundlePath) : new TextPack(bundlePath);
+    }
+}
@@ -0,0 +1,111 @@
+package pl.codeset.textbundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+abstract class AbstractAsyncTextBundle implements AsyncTextBundle {
+
+    final ExecutorService executor;
+
+    AbstractAsyncTextBundle(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sequential reader of asset bytes, each read starts where the previous one ended.
+     */
+    interface ChunkReader extends Closeable {
+
+        CompletableFuture<Integer> read(ByteBuffer buffer);
+    }
+
+    abstract ChunkReader openChunkReader(Asset asset) throws IOException;
+
+    @Override
+    public CompletableFuture<Long> transferAsset(Asset asset, int chunkSize,
+                                                 Function<? super ByteBuffer, ? extends CompletionStage<?>> consumer) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        ChunkReader reader;
+        try {
+            reader = openChunkReader(asset);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        transferChunk(reader, ByteBuffer.allocate(chunkSize), 0, consumer, result);
+        return result.whenComplete((transferred, error) -> closeQuietly(reader));
+    }
+
+    private void transferChunk(ChunkReader reader, ByteBuffer buffer, long transferred,
+                               Function<? super ByteBuffer, ? extends CompletionStage<?>> consumer,
+                               CompletableFuture<Long> result) {
+        buffer.clear();
+        reader.read(buffer).whenComplete((read, readError) -> {
+            if (readError != null) {
+                result.completeExceptionally(readError);
+                return;
+            }
+            if (read < 0) {
+                result.complete(transferred);
+                return;
+            }
+            buffer.flip();
+            CompletionStage<?> consumed;
+            try {
+                consumed = consumer.apply(buffer);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            // continue on the executor, so chunks consumed synchronously do not grow the stack
+            consumed.whenCompleteAsync((ignored, consumerError) -> {
+                if (consumerError != null) {
+                    result.completeExceptionally(consumerError);
+                } else {
+                    transferChunk(reader, buffer, transferred + read, consumer, result);
+                }
+            }, executor).exceptionally(e -> {
+                result.completeExceptionally(e);
+                return null;
+            });
+        });
+    }
+
+    <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package pl.codeset.textbundle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener aggregating reported events in memory, to be polled by a metrics registry or logged periodically.
+ * Latencies are kept in power-of-two histograms, so percentiles are upper bounds within a factor of two.
+ * <pre>
+ * AggregatingTextBundleListener metrics = new AggregatingTextBundleListener();
+ * TextBundleListeners.register(metrics);
+ * Duration p99 = metrics.getLatencyPercentile(TextBundleListener.Operation.PACK, 0.99);
+ * </pre>
+ */
+public class AggregatingTextBundleListener implements TextBundleListener {
+
+    private static final int BUCKETS = 64;
+
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+    private final LongAdder packOpenCount = new LongAdder();
+    private final LongAdder packOpenNanos = new LongAdder();
+    private final LongAdder entryCount = new LongAdder();
+    private final LongAdder entryBytes = new LongAdder();
+    private final LongAdder entryCompressedBytes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public AggregatingTextBundleListener() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, Path path, long durationNanos, long bytes) {
+        OperationStats stats = operations.get(operation);
+        stats.record(durationNanos);
+        if (bytes > 0) {
+            stats.bytes.add(bytes);
+        }
+    }
+
+    @Override
+    public void operationFailed(Operation operation, Path path, long durationNanos) {
+        OperationStats stats = operations.get(operation);
+        stats.record(durationNanos);
+        stats.failures.increment();
+    }
+
+    @Override
+    public void packOpened(Path path, long durationNanos) {
+        packOpenCount.increment();
+        packOpenNanos.add(durationNanos);
+    }
+
+    @Override
+    public void entryWritten(String entryName, long size, long compressedSize) {
+        entryCount.increment();
+        entryBytes.add(Math.max(size, 0));
+        entryCompressedBytes.add(Math.max(compressedSize, 0));
+    }
+
+    @Override
+    public void cacheHit(Path path) {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void cacheMiss(Path path) {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Completed and failed operations.
+     */
+    public long getCount(Operation operation) {
+        return operations.get(operation).count.sum();
+    }
+
+    public long getFailureCount(Operation operation) {
+        return operations.get(operation).failures.sum();
+    }
+
+    public Duration getTotalTime(Operation operation) {
+        return Duration.ofNanos(operations.get(operation).totalNanos.sum());
+    }
+
+    /**
+     * @param percentile between 0 and 1, e.g. {@code 0.99}
+     * @return upper bound of the latency percentile, {@link Duration#ZERO} when nothing was recorded
+     */
+    public Duration getLatencyPercentile(Operation operation, double percentile) {
+        AtomicLongArray histogram = operations.get(operation).histogram;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && histogram.get(i) > 0) {
+                return Duration.ofNanos(i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+        }
+        return Duration.ofNanos(Long.MAX_VALUE);
+    }
+
+    /**
+     * Bytes written or copied by completed operations that reported their size.
+     */
+    public long getBytes(Operation operation) {
+        return operations.get(operation).bytes.sum();
+    }
+
+    public long getPackOpenCount() {
+        return packOpenCount.sum();
+    }
+
+    public Duration getPackOpenTime() {
+        return Duration.ofNanos(packOpenNanos.sum());
+    }
+
+    public long getEntriesWritten() {
+        return entryCount.sum();
+    }
+
+    /**
+     * @return compressed to uncompressed size of written entries, {@code 1} when nothing was written
+     */
+    public double getCompressionRatio() {
+        long bytes = entryBytes.sum();
+        return bytes == 0 ? 1 : (double) entryCompressedBytes.sum() / bytes;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    private static final class OperationStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        // bucket i counts durations below 2^i nanoseconds
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        private void record(long durationNanos) {
+            long nanos = Math.max(durationNanos, 0);
+            count.increment();
+            totalNanos.add(nanos);
+            histogram.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1));
+        }
+    }
+}
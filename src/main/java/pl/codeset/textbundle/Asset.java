@@ -1,40 +1,86 @@
 package pl.codeset.textbundle;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 
 
 public class Asset {
 
-    private Path bundlePath;
+    private static final int BUFFER_SIZE = 8192;
+
     private final String targetPath;
+    private final ByteSource source;
+    private final long size;
+    private final FileTime lastModifiedTime;
+    private final long crc32;
     private byte[] content;
 
-    Asset(Path bundlePath, Path path) {
-        this.bundlePath = bundlePath;
-        targetPath = bundlePath.relativize(path).toString();
+    Asset(Path bundlePath, Path path, BasicFileAttributes attributes, long crc32) {
+        this(bundlePath.relativize(path).toString(), ByteSource.of(path), attributes.size(),
+                attributes.lastModifiedTime(), crc32);
+    }
+
+    Asset(String targetPath, ByteSource source, long size, FileTime lastModifiedTime, long crc32) {
+        this.targetPath = targetPath;
+        this.source = source;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+        this.crc32 = crc32;
     }
 
     public Asset(String fileName, byte[] bytes) {
         targetPath = Paths.get("assets", fileName).toString();
         content = bytes;
+        source = ByteSource.of(bytes);
+        size = bytes.length;
+        lastModifiedTime = null;
+        crc32 = -1;
     }
 
+    /**
+     * Creates asset backed by a file. The file is not read until the asset is written or its content is requested.
+     */
     public Asset(String fileName, Path sourcePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            throw new NoSuchFileException(sourcePath.toString());
+        }
         targetPath = Paths.get("assets", fileName).toString();
-        content = Files.readAllBytes(sourcePath);
+        source = ByteSource.of(sourcePath);
+        size = attributes.size();
+        lastModifiedTime = attributes.lastModifiedTime();
+        crc32 = -1;
     }
 
     public String getFileName() {
         return targetPath.substring("assets/".length());
     }
 
+    /**
+     * Reads the whole asset into memory. Prefer {@link #openStream()}, {@link #writeTo(OutputStream)}
+     * or {@link #transferTo(WritableByteChannel)} for large assets.
+     */
     public byte[] readContent() {
-        if (content == null && bundlePath != null) {
-            try {
-                content = Files.readAllBytes(bundlePath.resolve(targetPath));
+        if (content == null) {
+            try (InputStream in = openStream()) {
+                content = readFully(in);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -42,7 +88,162 @@ public class Asset {
         return content;
     }
 
+    public InputStream openStream() throws IOException {
+        return source.openStream();
+    }
+
+    /**
+     * Returns read-only view of the content without copying it to the heap when possible: files on the default
+     * file system and assets stored without compression in a pack read by {@link TextPackReader} are memory mapped.
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (content != null) {
+            return ByteBuffer.wrap(content).asReadOnlyBuffer();
+        }
+        return source.asByteBuffer();
+    }
+
+    public long writeTo(OutputStream out) throws IOException {
+        try (InputStream in = openStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+            return total;
+        }
+    }
+
+    public long transferTo(WritableByteChannel target) throws IOException {
+        Path sourcePath = source.getPath();
+        if (sourcePath != null && isDefaultFileSystem(sourcePath)) {
+            try (FileChannel channel = FileChannel.open(sourcePath, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    long transferred = channel.transferTo(position, size - position, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                return position;
+            }
+        }
+        try (ReadableByteChannel channel = Channels.newChannel(openStream())) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long total = 0;
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        }
+    }
+
     public String getPath() {
         return targetPath;
     }
+
+    /**
+     * @return size in bytes or -1 if not known
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return last modification time or {@code null} if not known
+     */
+    public FileTime getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    /**
+     * @return CRC-32 of the content as recorded in the archive directory, or -1 if not known
+     */
+    public long getCrc32() {
+        return crc32;
+    }
+
+    ByteSource getSource() {
+        return source;
+    }
+
+    void copyTo(Path target) throws IOException {
+        copyTo(target, AssetCopyMode.COPY);
+    }
+
+    void copyTo(Path target, AssetCopyMode copyMode) throws IOException {
+        Path sourcePath = source.getPath();
+        if (sourcePath != null && Files.exists(target) && Files.isSameFile(sourcePath, target)) {
+            return;
+        }
+        if (sourcePath != null && isDefaultFileSystem(sourcePath) && isDefaultFileSystem(target)) {
+            if (copyMode == AssetCopyMode.HARD_LINK && tryLink(sourcePath, target)) {
+                return;
+            }
+            // a new file instead of truncating, the old one may be a hard link shared with other bundles
+            Files.deleteIfExists(target);
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                transferTo(channel);
+            }
+            return;
+        }
+        try (InputStream in = openStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean tryLink(Path sourcePath, Path target) throws IOException {
+        try {
+            Files.deleteIfExists(target);
+            Files.createLink(target, sourcePath);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDefaultFileSystem(Path path) {
+        return path.getFileSystem() == FileSystems.getDefault();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Asset asset = (Asset) o;
+        return targetPath.equals(asset.targetPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return targetPath.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Asset{" +
+                "path='" + targetPath + '\'' +
+                ", size=" + size +
+                ", lastModifiedTime=" + lastModifiedTime +
+                ", crc32=" + crc32 +
+                '}';
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
 }
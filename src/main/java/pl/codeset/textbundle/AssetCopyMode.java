@@ -0,0 +1,19 @@
+package pl.codeset.textbundle;
+
+/**
+ * Strategy used by {@link TextBundleDir} when an asset backed by a file is written into the bundle.
+ */
+public enum AssetCopyMode {
+
+    /**
+     * Copies the file. When source and target are on the default file system the bytes are moved
+     * with {@link java.nio.channels.FileChannel#transferTo} and never pass through the Java heap.
+     */
+    COPY,
+
+    /**
+     * Creates a hard link to the source file, falling back to {@link #COPY} when the file system does not
+     * support links or the files are on different devices. Later changes of the source file are visible in the bundle.
+     */
+    HARD_LINK
+}
@@ -0,0 +1,223 @@
+package pl.codeset.textbundle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds assets referenced by the text: targets of markdown links and images ({@code [a](assets/x)},
+ * {@code ![a](<assets/x> "title")}), reference definitions ({@code [id]: assets/x}) and HTML {@code src} and
+ * {@code href} attributes. The text is read once, line by line; as in CommonMark, a link or definition target may
+ * start on the line following {@code ](} or {@code ]:}.
+ */
+public final class AssetReferences {
+
+    private static final String ASSETS_PREFIX = "assets/";
+
+    private AssetReferences() {
+    }
+
+    /**
+     * @return referenced asset paths relative to the bundle root, like {@code assets/image.png}
+     */
+    public static Set<String> scan(TextContent content) throws IOException {
+        try (BufferedReader reader = content.openReader()) {
+            return scan(reader);
+        }
+    }
+
+    public static Set<String> scan(BufferedReader reader) throws IOException {
+        Set<String> references = new HashSet<>();
+        boolean targetPending = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            targetPending = scanLine(line, targetPending, references);
+        }
+        return references;
+    }
+
+    /**
+     * @param targetPending previous line ended with {@code ](} or {@code ]:}, so the line starts with a target
+     * @return {@code true} when the line ends with {@code ](} or {@code ]:} and the target is on the next line
+     */
+    static boolean scanLine(String line, boolean targetPending, Set<String> references) {
+        int length = line.length();
+        int i = 0;
+        if (targetPending) {
+            i = scanTarget(line, 0, references) + 1;
+        } else if (scanDefinition(line, references)) {
+            return true;
+        }
+        for (; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == ']' && i + 1 < length && line.charAt(i + 1) == '(') {
+                if (skipWhitespace(line, i + 2) == length) {
+                    return true;
+                }
+                i = scanTarget(line, i + 2, references);
+            } else if ((c == 's' || c == 'S') && isAttribute(line, i, "src")) {
+                i = scanAttribute(line, i + 3, references);
+            } else if ((c == 'h' || c == 'H') && isAttribute(line, i, "href")) {
+                i = scanAttribute(line, i + 4, references);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reference definition: up to three spaces, {@code [label]:}, whitespace and the target.
+     *
+     * @return {@code true} when the target is on the next line
+     */
+    private static boolean scanDefinition(String line, Set<String> references) {
+        int i = 0;
+        while (i < line.length() && i < 3 && line.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= line.length() || line.charAt(i) != '[') {
+            return false;
+        }
+        int labelEnd = line.indexOf("]:", i + 1);
+        if (labelEnd < 0) {
+            return false;
+        }
+        if (skipWhitespace(line, labelEnd + 2) == line.length()) {
+            return true;
+        }
+        scanTarget(line, labelEnd + 2, references);
+        return false;
+    }
+
+    /**
+     * Reads link target starting at {@code start} (leading whitespace and angle brackets allowed). As in CommonMark,
+     * a target without angle brackets may contain balanced or backslash-escaped parentheses, it ends on whitespace
+     * or on an unmatched {@code )}.
+     *
+     * @return index of the last character read
+     */
+    private static int scanTarget(String line, int start, Set<String> references) {
+        int i = skipWhitespace(line, start);
+        boolean bracketed = i < line.length() && line.charAt(i) == '<';
+        if (bracketed) {
+            i++;
+        }
+        int end = i;
+        int depth = 0;
+        while (end < line.length()) {
+            char c = line.charAt(end);
+            if (c == '\\' && end + 1 < line.length() && isAsciiPunctuation(line.charAt(end + 1))) {
+                end += 2;
+                continue;
+            }
+            if (bracketed) {
+                if (c == '>') {
+                    break;
+                }
+            } else if (Character.isWhitespace(c)) {
+                break;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            }
+            end++;
+        }
+        addReference(unescape(line.substring(i, end)), references);
+        return end - 1;
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+        return c < 128 && !Character.isLetterOrDigit(c) && !Character.isWhitespace(c) && !Character.isISOControl(c);
+    }
+
+    /**
+     * Removes backslashes escaping punctuation, {@code assets/a\(1\).png} refers to {@code assets/a(1).png}.
+     */
+    private static String unescape(String target) {
+        if (target.indexOf('\\') < 0) {
+            return target;
+        }
+        StringBuilder unescaped = new StringBuilder(target.length());
+        for (int i = 0; i < target.length(); i++) {
+            char c = target.charAt(i);
+            if (c == '\\' && i + 1 < target.length() && isAsciiPunctuation(target.charAt(i + 1))) {
+                c = target.charAt(++i);
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+
+    private static boolean isAttribute(String line, int start, String name) {
+        if (start > 0 && Character.isLetterOrDigit(line.charAt(start - 1))) {
+            return false;
+        }
+        if (!line.regionMatches(true, start, name, 0, name.length())) {
+            return false;
+        }
+        int i = skipWhitespace(line, start + name.length());
+        return i < line.length() && line.charAt(i) == '=';
+    }
+
+    private static int scanAttribute(String line, int start, Set<String> references) {
+        int i = skipWhitespace(line, skipWhitespace(line, start) + 1);
+        char quote = i < line.length() ? line.charAt(i) : 0;
+        boolean quoted = quote == '"' || quote == '\'';
+        if (quoted) {
+            i++;
+        }
+        int end = i;
+        while (end < line.length()) {
+            char c = line.charAt(end);
+            if (quoted ? c == quote : (c == '>' || Character.isWhitespace(c))) {
+                break;
+            }
+            end++;
+        }
+        addReference(line.substring(i, end), references);
+        return end - 1;
+    }
+
+    private static int skipWhitespace(String line, int start) {
+        int i = start;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void addReference(String target, Set<String> references) {
+        String path = target.startsWith("./") ? target.substring(2) : target;
+        if (!path.startsWith(ASSETS_PREFIX)) {
+            return;
+        }
+        int suffix = indexOfAny(path, '#', '?');
+        if (suffix >= 0) {
+            path = path.substring(0, suffix);
+        }
+        if (path.indexOf('%') >= 0) {
+            try {
+                path = URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                // not encoded, keep as written
+            }
+        }
+        references.add(path);
+    }
+
+    private static int indexOfAny(String value, char first, char second) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == first || c == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,134 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed store of asset blobs shared by many bundles. Every distinct content is kept once, under
+ * {@code <root>/<first 2 hex digits>/<SHA-256>}, and materialized in bundle directories as a hard link
+ * (or a copy when linking is not possible). Thread-safe, also across processes sharing the root.
+ */
+public class AssetStore {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tempDir;
+
+    public AssetStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDir = this.root.resolve("tmp");
+        Files.createDirectories(tempDir);
+    }
+
+    /**
+     * Stores asset content. Re-readable content (files, pack entries, bytes) is hashed first and written only when
+     * its blob is missing; other content is hashed while it is streamed to disk.
+     *
+     * @return SHA-256 of the content as lower case hex
+     */
+    public String put(Asset asset) throws IOException {
+        ByteSource source = asset.getSource();
+        if (source.isRepeatable()) {
+            String hash = hash(source);
+            if (Files.exists(getBlob(hash))) {
+                return hash;
+            }
+        }
+        return copy(source);
+    }
+
+    /**
+     * Streams the content to a temporary file and moves it to its blob, unless the blob exists. The content is hashed
+     * again while copied, so a source changed since {@link #hash(ByteSource)} is stored under its current hash.
+     */
+    private String copy(ByteSource source) throws IOException {
+        MessageDigest digest = sha256();
+        Path tempFile = Files.createTempFile(tempDir, "blob", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(source.openStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = toHex(digest.digest());
+            Path blob = getBlob(hash);
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                try {
+                    Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, blob, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static String hash(ByteSource source) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = source.openStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public boolean contains(String hash) {
+        return Files.exists(getBlob(hash));
+    }
+
+    public Path getBlob(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Stores the asset and links its blob at target, replacing an existing file.
+     *
+     * @return SHA-256 of the content as lower case hex
+     */
+    public String materialize(Asset asset, Path target) throws IOException {
+        String hash = put(asset);
+        Path blob = getBlob(hash);
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, blob);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return hash;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,62 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link TextBundle}. Directories are read and written through
+ * {@link java.nio.channels.AsynchronousFileChannel}, packs are accessed on the given executor.
+ * The executor is not shut down on {@link #close()}.
+ */
+public interface AsyncTextBundle extends AutoCloseable {
+
+    static AsyncTextBundle open(Path path, ExecutorService executor) throws IOException {
+        if (Files.isDirectory(path)) {
+            return of(new TextBundleDir(path), executor);
+        }
+        return of(new TextPack(path), executor);
+    }
+
+    static AsyncTextBundle of(TextBundleDir bundle, ExecutorService executor) {
+        return new AsyncTextBundleDir(bundle, executor);
+    }
+
+    static AsyncTextBundle of(TextPack bundle, ExecutorService executor) {
+        return new AsyncTextPack(bundle, executor);
+    }
+
+    CompletableFuture<MetaData> readMetaData();
+
+    CompletableFuture<Set<Asset>> readAssets();
+
+    CompletableFuture<Void> writeAsset(Asset asset);
+
+    CompletableFuture<TextContent> readContent();
+
+    /**
+     * Reads asset bytes starting at the given position into the buffer.
+     * Completes with the number of bytes read, or -1 at the end of the asset.
+     */
+    CompletableFuture<Integer> readAsset(Asset asset, long position, ByteBuffer buffer);
+
+    /**
+     * Streams asset bytes to the consumer in chunks of at most {@code chunkSize} bytes. The next chunk is read
+     * only after the stage returned by the consumer completes, so a slow consumer is never flooded.
+     * The buffer passed to the consumer is reused, it must not be retained after the stage completes.
+     * Completes with the number of bytes transferred.
+     */
+    CompletableFuture<Long> transferAsset(Asset asset, int chunkSize,
+                                          Function<? super ByteBuffer, ? extends CompletionStage<?>> consumer);
+
+    Path getPath();
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,287 @@
+package pl.codeset.textbundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+final class AsyncTextBundleDir extends AbstractAsyncTextBundle {
+
+    private static final Set<OpenOption> READ = Collections.singleton(StandardOpenOption.READ);
+    private static final Set<OpenOption> CREATE_NEW = Collections.unmodifiableSet(
+            EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW));
+    private static final int WRITE_CHUNK_SIZE = 64 * 1024;
+
+    private final TextBundleDir bundle;
+
+    AsyncTextBundleDir(TextBundleDir bundle, ExecutorService executor) {
+        super(executor);
+        this.bundle = bundle;
+    }
+
+    @Override
+    public CompletableFuture<MetaData> readMetaData() {
+        return readFile(bundle.getPath().resolve("info.json"))
+                .thenApply(content -> {
+                    if (content == null) {
+                        return new MetaData();
+                    }
+                    try {
+                        return MetaDataCodec.read(new ByteArrayInputStream(content));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<Set<Asset>> readAssets() {
+        return supply(bundle::readAssets);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsset(Asset asset) {
+        if (bundle.getAssetStore() != null || bundle.getAssetCopyMode() != AssetCopyMode.COPY
+                || asset.getSource().getPath() != null) {
+            // file to file copies are already done by the kernel (transferTo or a link)
+            return supply(() -> {
+                bundle.writeAsset(asset);
+                return null;
+            });
+        }
+        return supply(() -> {
+            Path assetPath = bundle.resolveAssetPath(asset);
+            bundle.updateMetaData();
+            Files.createDirectories(assetPath.getParent());
+            // a previous file may be a hard link shared with other bundles, never write through it
+            Files.deleteIfExists(assetPath);
+            return assetPath;
+        }).thenCompose(assetPath -> writeStream(assetPath, asset));
+    }
+
+    @Override
+    public CompletableFuture<TextContent> readContent() {
+        return supply(bundle::findContentPath).thenCompose(contentPath -> {
+            ContentType contentType = ContentType.findByPath(contentPath).orElse(null);
+            if (contentType == null) {
+                return failed(new IOException("Unsupported content type " + contentPath.getFileName()));
+            }
+            return readFile(contentPath).thenApply(content -> {
+                if (content == null) {
+                    throw new UncheckedIOException(new NoSuchFileException(contentPath.toString()));
+                }
+                return new TextContent(contentType, content);
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> readAsset(Asset asset, long position, ByteBuffer buffer) {
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(bundle.resolveAssetPath(asset), READ, executor);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        return read(channel, position, buffer).whenComplete((read, error) -> closeQuietly(channel));
+    }
+
+    @Override
+    ChunkReader openChunkReader(Asset asset) throws IOException {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(bundle.resolveAssetPath(asset), READ, executor);
+        return new ChunkReader() {
+            private long position;
+
+            @Override
+            public CompletableFuture<Integer> read(ByteBuffer buffer) {
+                return AsyncTextBundleDir.read(channel, position, buffer).thenApply(read -> {
+                    if (read > 0) {
+                        position += read;
+                    }
+                    return read;
+                });
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    @Override
+    public Path getPath() {
+        return bundle.getPath();
+    }
+
+    @Override
+    public void close() {
+        bundle.close();
+    }
+
+    /**
+     * Reads whole file, completes with {@code null} when it does not exist.
+     */
+    private CompletableFuture<byte[]> readFile(Path file) {
+        AsynchronousFileChannel channel;
+        ByteBuffer buffer;
+        try {
+            channel = AsynchronousFileChannel.open(file, READ, executor);
+        } catch (NoSuchFileException e) {
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File too large to read into memory: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            return failed(e);
+        }
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        readFully(channel, buffer, result);
+        return result.whenComplete((content, error) -> closeQuietly(channel));
+    }
+
+    private static void readFully(AsynchronousFileChannel channel, ByteBuffer buffer, CompletableFuture<byte[]> result) {
+        read(channel, buffer.position(), buffer).whenComplete((read, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (read < 0 || !buffer.hasRemaining()) {
+                result.complete(buffer.position() == buffer.capacity()
+                        ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position()));
+            } else {
+                readFully(channel, buffer, result);
+            }
+        });
+    }
+
+    /**
+     * Copies the asset stream in fixed-size chunks, so assets without a file are never held in memory whole.
+     */
+    private CompletableFuture<Void> writeStream(Path file, Asset asset) {
+        AsynchronousFileChannel channel;
+        InputStream in;
+        try {
+            channel = AsynchronousFileChannel.open(file, CREATE_NEW, executor);
+        } catch (IOException | RuntimeException e) {
+            return failed(e);
+        }
+        try {
+            in = asset.openStream();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            return failed(e);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        writeChunk(channel, in, ByteBuffer.allocate(WRITE_CHUNK_SIZE), 0, result);
+        return result.whenComplete((ignored, error) -> {
+            closeQuietly(in);
+            closeQuietly(channel);
+        });
+    }
+
+    private void writeChunk(AsynchronousFileChannel channel, InputStream in, ByteBuffer buffer, long position,
+                            CompletableFuture<Void> result) {
+        // stream reads block, so each one runs on the executor instead of the completion handler thread
+        supply(() -> fill(in, buffer)).whenComplete((read, readError) -> {
+            if (readError != null) {
+                result.completeExceptionally(readError);
+                return;
+            }
+            if (read == 0) {
+                result.complete(null);
+                return;
+            }
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            writeFully(channel, position, buffer, written);
+            written.whenComplete((ignored, writeError) -> {
+                if (writeError != null) {
+                    result.completeExceptionally(writeError);
+                } else {
+                    writeChunk(channel, in, buffer, position + read, result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends, leaves the buffer flipped for writing.
+     */
+    private static int fill(InputStream in, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read < 0) {
+                break;
+            }
+            buffer.position(buffer.position() + read);
+        }
+        buffer.flip();
+        return buffer.limit();
+    }
+
+    /**
+     * Writes the buffer remaining bytes, buffer position {@code 0} goes to file {@code position}.
+     */
+    private static void writeFully(AsynchronousFileChannel channel, long position, ByteBuffer buffer,
+                                   CompletableFuture<Void> result) {
+        if (!buffer.hasRemaining()) {
+            result.complete(null);
+            return;
+        }
+        try {
+            channel.write(buffer, position + buffer.position(), null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer written, Void attachment) {
+                    writeFully(channel, position, buffer, result);
+                }
+
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    result.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static CompletableFuture<Integer> read(AsynchronousFileChannel channel, long position, ByteBuffer buffer) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        try {
+            channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer read, Void attachment) {
+                    result.complete(read);
+                }
+
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    result.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+}
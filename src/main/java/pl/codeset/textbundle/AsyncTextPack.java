@@ -0,0 +1,111 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs {@link TextPack} operations on the executor, reads run concurrently (see {@link TextPack}).
+ */
+final class AsyncTextPack extends AbstractAsyncTextBundle {
+
+    private final TextPack bundle;
+
+    AsyncTextPack(TextPack bundle, ExecutorService executor) {
+        super(executor);
+        this.bundle = bundle;
+    }
+
+    @Override
+    public CompletableFuture<MetaData> readMetaData() {
+        return supply(bundle::readMetaData);
+    }
+
+    @Override
+    public CompletableFuture<Set<Asset>> readAssets() {
+        return supply(bundle::readAssets);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsset(Asset asset) {
+        return supply(() -> {
+            bundle.writeAsset(asset);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<TextContent> readContent() {
+        return supply(bundle::readContent);
+    }
+
+    /**
+     * Compressed entries can not be positioned, so each call decompresses the asset up to {@code position}.
+     * Prefer {@link #transferAsset} for sequential reads.
+     */
+    @Override
+    public CompletableFuture<Integer> readAsset(Asset asset, long position, ByteBuffer buffer) {
+        return supply(() -> {
+            try (InputStream in = asset.openStream()) {
+                long remaining = position;
+                while (remaining > 0) {
+                    long skipped = in.skip(remaining);
+                    if (skipped <= 0) {
+                        if (in.read() < 0) {
+                            return -1;
+                        }
+                        skipped = 1;
+                    }
+                    remaining -= skipped;
+                }
+                return readChunk(in, buffer);
+            }
+        });
+    }
+
+    @Override
+    ChunkReader openChunkReader(Asset asset) throws IOException {
+        InputStream in = asset.openStream();
+        return new ChunkReader() {
+            @Override
+            public CompletableFuture<Integer> read(ByteBuffer buffer) {
+                return supply(() -> readChunk(in, buffer));
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    private static int readChunk(InputStream in, ByteBuffer buffer) throws IOException {
+        if (!buffer.hasArray()) {
+            byte[] chunk = new byte[buffer.remaining()];
+            int read = readChunk(in, ByteBuffer.wrap(chunk));
+            if (read > 0) {
+                buffer.put(chunk, 0, read);
+            }
+            return read;
+        }
+        int read = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        }
+        return read;
+    }
+
+    @Override
+    public Path getPath() {
+        return bundle.getPath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        bundle.close();
+    }
+}
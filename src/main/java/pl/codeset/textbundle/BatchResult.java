@@ -0,0 +1,131 @@
+package pl.codeset.textbundle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a {@link TextBundleBatch} run, one {@link Item} per processed bundle in input order.
+ */
+public class BatchResult {
+
+    private final List<Item> items;
+    private final Duration elapsed;
+
+    BatchResult(List<Item> items, Duration elapsed) {
+        this.items = Collections.unmodifiableList(items);
+        this.elapsed = elapsed;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Item> getFailed() {
+        return items.stream().filter(i -> !i.isSuccess()).collect(Collectors.toList());
+    }
+
+    public boolean isSuccess() {
+        return items.stream().allMatch(Item::isSuccess);
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public long getBytes() {
+        return items.stream().mapToLong(Item::getBytes).sum();
+    }
+
+    public double getBundlesPerSecond() {
+        return perSecond(items.size());
+    }
+
+    public double getMegabytesPerSecond() {
+        return perSecond(getBytes() / (1024.0 * 1024.0));
+    }
+
+    private double perSecond(double value) {
+        long nanos = elapsed.toNanos();
+        return nanos > 0 ? value * 1_000_000_000L / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "items=" + items.size() +
+                ", failed=" + getFailed().size() +
+                ", elapsed=" + elapsed +
+                ", bundlesPerSecond=" + String.format("%.1f", getBundlesPerSecond()) +
+                ", megabytesPerSecond=" + String.format("%.1f", getMegabytesPerSecond()) +
+                '}';
+    }
+
+    public static class Item {
+
+        private final Path source;
+        private final Path target;
+        private final long bytes;
+        private final Exception error;
+        private final Set<Asset> unreferencedAssets;
+
+        Item(Path source, Path target, long bytes, Exception error) {
+            this(source, target, bytes, error, Collections.emptySet());
+        }
+
+        Item(Path source, Path target, long bytes, Exception error, Set<Asset> unreferencedAssets) {
+            this.source = source;
+            this.target = target;
+            this.bytes = bytes;
+            this.error = error;
+            this.unreferencedAssets = unreferencedAssets;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * @return size of the {@code .textpack} file that was written or read, for optimization total size
+         * of unreferenced assets
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return failure cause or {@code null} when the bundle was processed
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return assets found unreferenced by optimization, empty for other operations
+         */
+        public Set<Asset> getUnreferencedAssets() {
+            return unreferencedAssets;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{" +
+                    "source=" + source +
+                    ", target=" + target +
+                    ", bytes=" + bytes +
+                    ", error=" + error +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package pl.codeset.textbundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-openable source of bytes. Every call to {@link #openStream()} starts reading from the beginning.
+ */
+interface ByteSource {
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * @return file backing this source or {@code null} when the bytes do not come straight from a file
+     */
+    default Path getPath() {
+        return null;
+    }
+
+    /**
+     * @return {@code false} for sources that can be opened only once, see {@link #once(ByteSource)}
+     */
+    default boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * Read-only view of the bytes. Files on the default file system are memory mapped, other sources are read
+     * into a heap buffer.
+     */
+    default ByteBuffer asByteBuffer() throws IOException {
+        Path path = getPath();
+        if (path != null && path.getFileSystem() == FileSystems.getDefault()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return map(channel, 0, channel.size());
+            }
+        }
+        try (InputStream in = openStream()) {
+            return ByteBuffer.wrap(Asset.readFully(in)).asReadOnlyBuffer();
+        }
+    }
+
+    static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Can not map more than 2GB, size: " + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    static ByteSource of(byte[] bytes) {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+
+            @Override
+            public ByteBuffer asByteBuffer() {
+                return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            }
+        };
+    }
+
+    /**
+     * Source which can be opened only once, for streams supplied by the caller.
+     */
+    static ByteSource once(ByteSource source) {
+        AtomicBoolean opened = new AtomicBoolean();
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                if (opened.getAndSet(true)) {
+                    throw new IOException("Stream source can be read only once");
+                }
+                return source.openStream();
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Copies the source into a new temporary file, for writers which read a source more than once.
+     *
+     * @param directory directory of the file, {@code null} for the default temporary directory
+     */
+    static Path spool(ByteSource source, Path directory) throws IOException {
+        Path file = directory != null
+                ? Files.createTempFile(directory, "textbundle", ".tmp")
+                : Files.createTempFile("textbundle", ".tmp");
+        try (InputStream in = source.openStream()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    static ByteSource of(Path path) {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return Files.newInputStream(path);
+            }
+
+            @Override
+            public Path getPath() {
+                return path;
+            }
+        };
+    }
+}
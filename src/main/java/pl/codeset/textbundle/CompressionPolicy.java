@@ -0,0 +1,72 @@
+package pl.codeset.textbundle;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Decides how each entry of a {@link TextPack} is compressed.
+ */
+public interface CompressionPolicy {
+
+    /**
+     * Stores already compressed media and archives, deflates everything else.
+     */
+    CompressionPolicy DEFAULT = storeExtensions(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "heif", "avif",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "pdf", "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst",
+            "jar", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub"));
+
+    /**
+     * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     */
+    int getMethod(String entryName);
+
+    /**
+     * @return deflate level (0-9) used when {@link #getMethod(String)} returns {@link ZipEntry#DEFLATED}
+     */
+    default int getLevel(String entryName) {
+        return Deflater.DEFAULT_COMPRESSION;
+    }
+
+    static CompressionPolicy deflateAll() {
+        return deflateAll(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    static CompressionPolicy deflateAll(int level) {
+        return new CompressionPolicy() {
+            @Override
+            public int getMethod(String entryName) {
+                return ZipEntry.DEFLATED;
+            }
+
+            @Override
+            public int getLevel(String entryName) {
+                return level;
+            }
+        };
+    }
+
+    /**
+     * Stores entries with one of the given file extensions (case insensitive) and deflates the rest.
+     */
+    static CompressionPolicy storeExtensions(Collection<String> extensions) {
+        Set<String> stored = new HashSet<>();
+        for (String extension : extensions) {
+            stored.add(extension.toLowerCase());
+        }
+        return entryName -> {
+            int dotIndex = entryName.lastIndexOf('.');
+            if (dotIndex >= 0 && dotIndex > entryName.lastIndexOf('/')
+                    && stored.contains(entryName.substring(dotIndex + 1).toLowerCase())) {
+                return ZipEntry.STORED;
+            }
+            return ZipEntry.DEFLATED;
+        };
+    }
+}
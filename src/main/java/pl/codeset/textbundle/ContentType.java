@@ -2,12 +2,13 @@ package pl.codeset.textbundle;
 
 import java.nio.file.Path;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 public enum ContentType {
 
     MARKDOWN("markdown");
 
+    private static final ContentType[] VALUES = values();
+
     private final String extension;
 
     ContentType(String extension) {
@@ -20,6 +21,11 @@ public enum ContentType {
 
     public static Optional<ContentType> findByPath(Path path) {
         String fileName = path.getFileName().toString().toLowerCase();
-        return Stream.of(values()).filter(v -> fileName.endsWith(v.extension)).findFirst();
+        for (ContentType contentType : VALUES) {
+            if (fileName.endsWith(contentType.extension)) {
+                return Optional.of(contentType);
+            }
+        }
+        return Optional.empty();
     }
 }
@@ -1,10 +1,13 @@
 package pl.codeset.textbundle;
 
+import com.google.gson.JsonElement;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 import java.util.Map;
 import java.util.Objects;
 
+@JsonAdapter(MetaDataCodec.Adapter.class)
 public class MetaData {
 
     private Integer version;
@@ -15,6 +18,7 @@ public class MetaData {
     private String creatorIdentifier;
     private String sourceURL;
     private Map<String, Object> applicationContent;
+    private transient JsonElement rawApplicationContent;
 
     public MetaData() {
         this.version = 2;
@@ -69,11 +73,25 @@ public class MetaData {
     }
 
     public Map<String, Object> getApplicationContent() {
+        if (rawApplicationContent != null) {
+            applicationContent = MetaDataCodec.parseApplicationContent(rawApplicationContent);
+            rawApplicationContent = null;
+        }
         return applicationContent;
     }
 
     public void setApplicationContent(Map<String, Object> applicationContent) {
         this.applicationContent = applicationContent;
+        this.rawApplicationContent = null;
+    }
+
+    JsonElement getRawApplicationContent() {
+        return rawApplicationContent;
+    }
+
+    void setRawApplicationContent(JsonElement rawApplicationContent) {
+        this.applicationContent = null;
+        this.rawApplicationContent = rawApplicationContent;
     }
 
     @Override
@@ -85,7 +103,7 @@ public class MetaData {
                 ", creatorURL='" + creatorURL + '\'' +
                 ", creatorIdentifier='" + creatorIdentifier + '\'' +
                 ", sourceURL='" + sourceURL + '\'' +
-                ", applicationContent=" + applicationContent +
+                ", applicationContent=" + getApplicationContent() +
                 '}';
     }
 
@@ -100,11 +118,11 @@ public class MetaData {
                 Objects.equals(creatorURL, metaData.creatorURL) &&
                 Objects.equals(creatorIdentifier, metaData.creatorIdentifier) &&
                 Objects.equals(sourceURL, metaData.sourceURL) &&
-                Objects.equals(applicationContent, metaData.applicationContent);
+                Objects.equals(getApplicationContent(), metaData.getApplicationContent());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(version, type, isTransient, creatorURL, creatorIdentifier, sourceURL, applicationContent);
+        return Objects.hash(version, type, isTransient, creatorURL, creatorIdentifier, sourceURL, getApplicationContent());
     }
 }
@@ -0,0 +1,188 @@
+package pl.codeset.textbundle;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads and writes {@code info.json} straight from and to byte streams. The fixed fields are handled without
+ * reflection and {@code applicationContent} is kept as a JSON tree until {@link MetaData#getApplicationContent()}
+ * is called. Thread-safe.
+ */
+public final class MetaDataCodec {
+
+    private static final Gson GSON = new Gson();
+    private static final Type APPLICATION_CONTENT_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+    private static final TypeAdapter<MetaData> ADAPTER = new Adapter();
+
+    private MetaDataCodec() {
+    }
+
+    public static TypeAdapter<MetaData> typeAdapter() {
+        return ADAPTER;
+    }
+
+    /**
+     * @return metadata or {@code null} when the stream is empty
+     */
+    public static MetaData read(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+            return null;
+        }
+        return ADAPTER.read(reader);
+    }
+
+    public static void write(MetaData metaData, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setHtmlSafe(true);
+        ADAPTER.write(jsonWriter, metaData);
+        jsonWriter.flush();
+    }
+
+    public static byte[] toBytes(MetaData metaData) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            write(metaData, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static Map<String, Object> parseApplicationContent(JsonElement json) {
+        return GSON.fromJson(json, APPLICATION_CONTENT_TYPE);
+    }
+
+    static final class Adapter extends TypeAdapter<MetaData> {
+
+        @Override
+        public void write(JsonWriter out, MetaData metaData) throws IOException {
+            if (metaData == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (metaData.getVersion() != null) {
+                out.name("version").value(metaData.getVersion());
+            }
+            writeString(out, "type", metaData.getType());
+            if (metaData.getTransient() != null) {
+                out.name("transient").value(metaData.getTransient());
+            }
+            writeString(out, "creatorURL", metaData.getCreatorURL());
+            writeString(out, "creatorIdentifier", metaData.getCreatorIdentifier());
+            writeString(out, "sourceURL", metaData.getSourceURL());
+            JsonElement rawApplicationContent = metaData.getRawApplicationContent();
+            if (rawApplicationContent != null) {
+                out.name("applicationContent");
+                GSON.toJson(rawApplicationContent, out);
+            } else if (metaData.getApplicationContent() != null) {
+                out.name("applicationContent");
+                GSON.toJson(metaData.getApplicationContent(), APPLICATION_CONTENT_TYPE, out);
+            }
+            out.endObject();
+        }
+
+        private static void writeString(JsonWriter out, String name, String value) throws IOException {
+            if (value != null) {
+                out.name(name).value(value);
+            }
+        }
+
+        @Override
+        public MetaData read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            MetaData metaData = new MetaData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "version":
+                        metaData.setVersion(readInteger(in));
+                        break;
+                    case "type":
+                        metaData.setType(readString(in));
+                        break;
+                    case "transient":
+                        metaData.setTransient(readBoolean(in));
+                        break;
+                    case "creatorURL":
+                        metaData.setCreatorURL(readString(in));
+                        break;
+                    case "creatorIdentifier":
+                        metaData.setCreatorIdentifier(readString(in));
+                        break;
+                    case "sourceURL":
+                        metaData.setSourceURL(readString(in));
+                        break;
+                    case "applicationContent":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            metaData.setApplicationContent(null);
+                        } else {
+                            metaData.setRawApplicationContent(JsonParser.parseReader(in));
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return metaData;
+        }
+
+        private static Integer readInteger(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextInt();
+        }
+
+        private static Boolean readBoolean(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case STRING:
+                    return Boolean.parseBoolean(in.nextString());
+                default:
+                    return in.nextBoolean();
+            }
+        }
+
+        private static String readString(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case BOOLEAN:
+                    return Boolean.toString(in.nextBoolean());
+                default:
+                    return in.nextString();
+            }
+        }
+    }
+}
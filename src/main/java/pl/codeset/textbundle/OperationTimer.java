@@ -0,0 +1,80 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times an operation for the registered {@link TextBundleListener}. The operation is reported as failed when
+ * closed without {@link #completed(long)}. Does nothing, not even reading the clock, when no listener is registered.
+ */
+final class OperationTimer implements AutoCloseable {
+
+    private static final OperationTimer DISABLED = new OperationTimer(null, null, null, 0);
+
+    private final TextBundleListener listener;
+    private final TextBundleListener.Operation operation;
+    private final Path path;
+    private final long start;
+    private boolean reported;
+
+    private OperationTimer(TextBundleListener listener, TextBundleListener.Operation operation, Path path, long start) {
+        this.listener = listener;
+        this.operation = operation;
+        this.path = path;
+        this.start = start;
+    }
+
+    static OperationTimer start(TextBundleListener.Operation operation, Path path) {
+        TextBundleListener listener = TextBundleListeners.get();
+        if (listener == TextBundleListener.NONE) {
+            return DISABLED;
+        }
+        return new OperationTimer(listener, operation, path, System.nanoTime());
+    }
+
+    static long startPackOpen() {
+        return TextBundleListeners.get() == TextBundleListener.NONE ? 0 : System.nanoTime();
+    }
+
+    static void packOpened(Path path, long start) {
+        TextBundleListener listener = TextBundleListeners.get();
+        if (listener != TextBundleListener.NONE && start != 0) {
+            listener.packOpened(path, System.nanoTime() - start);
+        }
+    }
+
+    void completed() {
+        completed(-1);
+    }
+
+    void completed(long bytes) {
+        if (listener != null && !reported) {
+            reported = true;
+            listener.operationCompleted(operation, path, System.nanoTime() - start, bytes);
+        }
+    }
+
+    /**
+     * Completes the operation with size of the written file, read only when a listener is registered.
+     */
+    void completed(Path writtenFile) {
+        if (listener != null && !reported) {
+            long bytes;
+            try {
+                bytes = Files.size(writtenFile);
+            } catch (IOException e) {
+                bytes = -1;
+            }
+            completed(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (listener != null && !reported) {
+            reported = true;
+            listener.operationFailed(operation, path, System.nanoTime() - start);
+        }
+    }
+}
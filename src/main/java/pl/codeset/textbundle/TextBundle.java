@@ -2,6 +2,7 @@ package pl.codeset.textbundle;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Set;
 
 public interface TextBundle extends AutoCloseable {
@@ -16,9 +17,53 @@ public interface TextBundle extends AutoCloseable {
 
     TextBundle removeAsset(Asset asset) throws IOException;
 
+    /**
+     * Returns content read lazily, when used: the text is not copied into memory up front. Content of a bundle
+     * directory stays bound to its file, using it after the content was written again fails, see {@link TextContent}.
+     */
     TextContent readContent() throws IOException;
 
     TextBundle writeContent(TextContent textContent) throws IOException;
 
     Path getPath();
+
+    /**
+     * Starts a batch of changes applied together on {@link TextBundleEdit#commit()}. Bundles without a dedicated
+     * implementation apply the changes one by one.
+     */
+    default TextBundleEdit edit() {
+        return new TextBundleEdit(edit -> edit.applyTo(this));
+    }
+
+    /**
+     * Finds assets not referenced by the content (see {@link AssetReferences}) and removes them.
+     *
+     * @param dryRun when {@code true} assets are only reported, not removed
+     * @return unreferenced assets
+     */
+    default Set<Asset> optimize(boolean dryRun) throws IOException {
+        try (OperationTimer timer = OperationTimer.start(TextBundleListener.Operation.OPTIMIZE, getPath())) {
+            Set<String> references = AssetReferences.scan(readContent());
+            Set<Asset> unreferenced = new HashSet<>();
+            for (Asset asset : readAssets()) {
+                if (!references.contains(asset.getPath().replace('\\', '/'))) {
+                    unreferenced.add(asset);
+                }
+            }
+            if (!dryRun) {
+                for (Asset asset : unreferenced) {
+                    removeAsset(asset);
+                }
+            }
+            timer.completed();
+            return unreferenced;
+        }
+    }
+
+    /**
+     * Removes assets not referenced by the content.
+     */
+    default void optimize() throws IOException {
+        optimize(false);
+    }
 }
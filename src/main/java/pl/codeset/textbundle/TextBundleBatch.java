@@ -0,0 +1,214 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Packs or unpacks many bundles concurrently. At most {@code maxConcurrency} bundles are processed at a time,
+ * whatever the executor. On JDK 21+ pass {@code Executors.newVirtualThreadPerTaskExecutor()} to run every
+ * bundle on its own virtual thread.
+ */
+public class TextBundleBatch implements AutoCloseable {
+
+    private static final String TEXTPACK_EXTENSION = ".textpack";
+    private static final String TEXTBUNDLE_EXTENSION = ".textbundle";
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final int maxConcurrency;
+
+    /**
+     * Uses own thread pool with {@code maxConcurrency} threads, shut down on {@link #close()}.
+     */
+    public TextBundleBatch(int maxConcurrency) {
+        this(Executors.newFixedThreadPool(maxConcurrency), maxConcurrency, true);
+    }
+
+    /**
+     * Uses given executor, which is left running on {@link #close()}.
+     */
+    public TextBundleBatch(Executor executor, int maxConcurrency) {
+        this(executor, maxConcurrency, false);
+    }
+
+    private TextBundleBatch(Executor executor, int maxConcurrency, boolean ownsExecutor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Finds bundle directories (see {@link TextBundleDir#isBundleDir(Path)}) below root, without descending into them.
+     */
+    public static List<Path> findBundleDirs(Path root) throws IOException {
+        List<Path> bundles = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (TextBundleDir.isBundleDir(dir)) {
+                    bundles.add(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return bundles;
+    }
+
+    public static List<Path> findTextPacks(Path root) throws IOException {
+        List<Path> packs = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().toLowerCase().endsWith(TEXTPACK_EXTENSION)) {
+                    packs.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return packs;
+    }
+
+    /**
+     * Packs every bundle directory found below sourceRoot into {@code .textpack} files at the same relative location
+     * below targetRoot.
+     */
+    public BatchResult packAll(Path sourceRoot, Path targetRoot) throws IOException {
+        return packAll(findBundleDirs(sourceRoot).stream(),
+                bundle -> targetRoot.resolve(replaceExtension(sourceRoot.relativize(bundle).toString(), TEXTPACK_EXTENSION)));
+    }
+
+    public BatchResult packAll(Stream<Path> bundleDirs, TargetResolver targetResolver) throws IOException {
+        return run(bundleDirs, source -> {
+            Path target = targetResolver.resolve(source);
+            try (TextBundleDir dir = new TextBundleDir(source)) {
+                dir.packTo(target);
+            }
+            return new BatchResult.Item(source, target, Files.size(target), null);
+        });
+    }
+
+    /**
+     * Unpacks every {@code .textpack} file found below sourceRoot into {@code .textbundle} directories at the same
+     * relative location below targetRoot.
+     */
+    public BatchResult unpackAll(Path sourceRoot, Path targetRoot) throws IOException {
+        return unpackAll(findTextPacks(sourceRoot).stream(),
+                pack -> targetRoot.resolve(replaceExtension(sourceRoot.relativize(pack).toString(), TEXTBUNDLE_EXTENSION)));
+    }
+
+    public BatchResult unpackAll(Stream<Path> textPacks, TargetResolver targetResolver) throws IOException {
+        return run(textPacks, source -> {
+            Path target = targetResolver.resolve(source);
+            try (TextPack pack = new TextPack(source)) {
+                pack.unpackTo(target);
+            }
+            return new BatchResult.Item(source, target, Files.size(source), null);
+        });
+    }
+
+    /**
+     * Removes unreferenced assets (see {@link TextBundle#optimize(boolean)}) from every bundle directory and
+     * {@code .textpack} file found below root.
+     */
+    public BatchResult optimizeAll(Path root, boolean dryRun) throws IOException {
+        List<Path> bundles = findBundleDirs(root);
+        bundles.addAll(findTextPacks(root));
+        return optimizeAll(bundles.stream(), dryRun);
+    }
+
+    public BatchResult optimizeAll(Stream<Path> bundles, boolean dryRun) throws IOException {
+        return run(bundles, source -> {
+            Set<Asset> unreferenced;
+            try (TextBundle bundle = Files.isDirectory(source) ? new TextBundleDir(source) : new TextPack(source)) {
+                unreferenced = bundle.optimize(dryRun);
+            }
+            long bytes = 0;
+            for (Asset asset : unreferenced) {
+                bytes += Math.max(asset.getSize(), 0);
+            }
+            return new BatchResult.Item(source, source, bytes, null, unreferenced);
+        });
+    }
+
+    BatchResult run(Stream<Path> sources, Task task) throws IOException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<BatchResult.Item>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        Iterator<Path> iterator = sources.iterator();
+        try {
+            while (iterator.hasNext()) {
+                Path source = iterator.next();
+                permits.acquire();
+                try {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return task.process(source);
+                        } catch (Exception e) {
+                            return new BatchResult.Item(source, null, 0, e);
+                        } finally {
+                            permits.release();
+                        }
+                    }, executor));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    futures.add(CompletableFuture.completedFuture(new BatchResult.Item(source, null, 0, e)));
+                }
+            }
+            permits.acquire(maxConcurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bundles");
+        }
+        List<BatchResult.Item> items = new ArrayList<>(futures.size());
+        for (CompletableFuture<BatchResult.Item> future : futures) {
+            items.add(future.join());
+        }
+        return new BatchResult(items, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static String replaceExtension(String fileName, String extension) {
+        int dotIndex = fileName.lastIndexOf('.');
+        int separatorIndex = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        return (dotIndex > separatorIndex + 1 ? fileName.substring(0, dotIndex) : fileName) + extension;
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    public interface TargetResolver {
+
+        Path resolve(Path source) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Task {
+
+        BatchResult.Item process(Path source) throws Exception;
+    }
+}
@@ -0,0 +1,337 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps {@link TextPackReader}s open between uses, so a pack is opened and its central directory parsed once.
+ * Readers are evicted in least recently used order when there are more than {@code maxEntries} open packs,
+ * when all open packs index more than {@code maxIndexedEntries} zip entries together (index memory is proportional
+ * to it) or when a pack was not used for {@code maxIdleTime}. A pack modified since it was opened (different
+ * modification time or size) is reopened.
+ * <p>
+ * Readers are handed out as {@link Lease}s, an evicted reader is closed when its last lease is closed.
+ * Instances are safe for use by multiple threads.
+ */
+public class TextBundleCache implements AutoCloseable {
+
+    private final int maxEntries;
+    private long maxIndexedEntries = Long.MAX_VALUE;
+    private Duration maxIdleTime;
+
+    private final LinkedHashMap<Path, CachedReader> readers = new LinkedHashMap<>(16, 0.75f, true);
+    private long indexedEntries;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    public TextBundleCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getMaxIndexedEntries() {
+        return maxIndexedEntries;
+    }
+
+    public TextBundleCache setMaxIndexedEntries(long maxIndexedEntries) {
+        List<CachedReader> evicted;
+        synchronized (this) {
+            this.maxIndexedEntries = maxIndexedEntries;
+            evicted = evictOverLimits(null);
+        }
+        closeAll(evicted);
+        return this;
+    }
+
+    public synchronized Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Idle readers are evicted on {@link #acquire(Path)} and {@link #cleanUp()}, {@code null} disables idle eviction.
+     */
+    public TextBundleCache setMaxIdleTime(Duration maxIdleTime) {
+        synchronized (this) {
+            this.maxIdleTime = maxIdleTime;
+        }
+        cleanUp();
+        return this;
+    }
+
+    /**
+     * Returns reader of the pack, opening it when not cached or when the file changed since it was opened.
+     */
+    public Lease acquire(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        List<CachedReader> evicted = new ArrayList<>();
+        try {
+            Lease hit = null;
+            synchronized (this) {
+                evicted.addAll(evictIdle(System.nanoTime()));
+                CachedReader cached = readers.get(key);
+                if (cached != null && cached.matches(attributes)) {
+                    hitCount++;
+                    hit = cached.lease();
+                } else {
+                    if (cached != null) {
+                        invalidationCount++;
+                        evicted.add(remove(key));
+                    }
+                    missCount++;
+                }
+            }
+            if (hit != null) {
+                TextBundleListeners.get().cacheHit(key);
+                return hit;
+            }
+            TextBundleListeners.get().cacheMiss(key);
+
+            CachedReader opened = new CachedReader(key, new TextPackReader(key), attributes);
+            synchronized (this) {
+                CachedReader cached = readers.get(key);
+                if (cached != null && cached.matches(attributes)) {
+                    // opened concurrently by another thread
+                    evicted.add(opened);
+                    return cached.lease();
+                }
+                if (cached != null) {
+                    evicted.add(remove(key));
+                }
+                readers.put(key, opened);
+                indexedEntries += opened.entryCount;
+                Lease lease = opened.lease();
+                evicted.addAll(evictOverLimits(key));
+                return lease;
+            }
+        } finally {
+            closeAll(evicted);
+        }
+    }
+
+    /**
+     * Evicts the pack, its reader is closed when no longer leased.
+     */
+    public void invalidate(Path path) {
+        CachedReader removed;
+        synchronized (this) {
+            removed = remove(path.toAbsolutePath().normalize());
+            if (removed != null) {
+                invalidationCount++;
+            }
+        }
+        closeAll(removed != null ? Collections.singletonList(removed) : Collections.emptyList());
+    }
+
+    public void invalidateAll() {
+        List<CachedReader> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(readers.values());
+            for (CachedReader cached : removed) {
+                remove(cached.path);
+            }
+            invalidationCount += removed.size();
+        }
+        closeAll(removed);
+    }
+
+    /**
+     * Evicts readers idle for longer than {@link #getMaxIdleTime()}.
+     */
+    public void cleanUp() {
+        List<CachedReader> evicted;
+        synchronized (this) {
+            evicted = evictIdle(System.nanoTime());
+        }
+        closeAll(evicted);
+    }
+
+    public synchronized int size() {
+        return readers.size();
+    }
+
+    public synchronized long getIndexedEntries() {
+        return indexedEntries;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Readers evicted because of size limits or idle time.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Readers evicted because the file changed or on explicit invalidation.
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    private List<CachedReader> evictIdle(long now) {
+        List<CachedReader> evicted = new ArrayList<>();
+        if (maxIdleTime == null) {
+            return evicted;
+        }
+        long maxIdleNanos = maxIdleTime.toNanos();
+        Iterator<CachedReader> iterator = readers.values().iterator();
+        while (iterator.hasNext()) {
+            CachedReader cached = iterator.next();
+            if (now - cached.lastAccess > maxIdleNanos) {
+                iterator.remove();
+                indexedEntries -= cached.entryCount;
+                cached.evicted = true;
+                evictionCount++;
+                evicted.add(cached);
+            }
+        }
+        return evicted;
+    }
+
+    private List<CachedReader> evictOverLimits(Path keep) {
+        List<CachedReader> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Path, CachedReader>> iterator = readers.entrySet().iterator();
+        while ((readers.size() > maxEntries || indexedEntries > maxIndexedEntries) && iterator.hasNext()) {
+            CachedReader cached = iterator.next().getValue();
+            if (cached.path.equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            indexedEntries -= cached.entryCount;
+            cached.evicted = true;
+            evictionCount++;
+            evicted.add(cached);
+        }
+        return evicted;
+    }
+
+    private CachedReader remove(Path key) {
+        CachedReader removed = readers.remove(key);
+        if (removed != null) {
+            indexedEntries -= removed.entryCount;
+            removed.evicted = true;
+        }
+        return removed;
+    }
+
+    private void closeAll(List<CachedReader> evicted) {
+        for (CachedReader cached : evicted) {
+            boolean unused;
+            synchronized (this) {
+                cached.evicted = true;
+                unused = cached.leases == 0;
+            }
+            if (unused) {
+                cached.closeReader();
+            }
+        }
+    }
+
+    private void release(CachedReader cached) {
+        boolean unused;
+        synchronized (this) {
+            cached.leases--;
+            unused = cached.evicted && cached.leases == 0;
+        }
+        if (unused) {
+            cached.closeReader();
+        }
+    }
+
+    private final class CachedReader {
+
+        private final Path path;
+        private final TextPackReader reader;
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final int entryCount;
+        private long lastAccess;
+        private int leases;
+        private boolean evicted;
+
+        private CachedReader(Path path, TextPackReader reader, BasicFileAttributes attributes) {
+            this.path = path;
+            this.reader = reader;
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.entryCount = reader.getEntryNames().size();
+            this.lastAccess = System.nanoTime();
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return lastModifiedTime.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+
+        private Lease lease() {
+            leases++;
+            lastAccess = System.nanoTime();
+            return new Lease(this);
+        }
+
+        private void closeReader() {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Access to a cached reader, close it when done. The reader itself must not be closed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final CachedReader cached;
+        private boolean closed;
+
+        private Lease(CachedReader cached) {
+            this.cached = cached;
+        }
+
+        public TextPackReader getReader() {
+            return cached.reader;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(cached);
+        }
+    }
+}
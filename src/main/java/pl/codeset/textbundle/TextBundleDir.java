@@ -1,28 +1,32 @@
 package pl.codeset.textbundle;
 
-import com.google.gson.Gson;
+import pl.codeset.textbundle.TextBundleListener.Operation;
 
 import java.io.IOException;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
 
 public class TextBundleDir implements TextBundle {
 
     private final Path path;
+    private AssetCopyMode assetCopyMode = AssetCopyMode.COPY;
+    private CompressionPolicy compressionPolicy = CompressionPolicy.DEFAULT;
+    private AssetStore assetStore;
+    private volatile Path contentPath;
 
     public static boolean isBundleDir(Path path) {
         return Files.exists(path) && Files.exists(path.resolve("info.json"));
@@ -35,90 +39,165 @@ public class TextBundleDir implements TextBundle {
         }
     }
 
+    public AssetCopyMode getAssetCopyMode() {
+        return assetCopyMode;
+    }
+
+    public TextBundleDir setAssetCopyMode(AssetCopyMode assetCopyMode) {
+        this.assetCopyMode = assetCopyMode;
+        return this;
+    }
+
+    public AssetStore getAssetStore() {
+        return assetStore;
+    }
+
+    /**
+     * When set, written assets are deduplicated through the store and linked into the bundle.
+     * Takes precedence over {@link #setAssetCopyMode(AssetCopyMode)}.
+     */
+    public TextBundleDir setAssetStore(AssetStore assetStore) {
+        this.assetStore = assetStore;
+        return this;
+    }
+
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    public TextBundleDir setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+        return this;
+    }
+
     @Override
     public MetaData readMetaData() throws IOException {
-        Path infoFile = path.resolve("info.json");
-        if (Files.exists(infoFile)) {
-            byte[] bytes = Files.readAllBytes(infoFile);
-            return new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8), MetaData.class);
-        } else {
-            return new MetaData();
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_METADATA, path)) {
+            Path infoFile = path.resolve("info.json");
+            MetaData metaData;
+            if (Files.exists(infoFile)) {
+                try (InputStream in = Files.newInputStream(infoFile)) {
+                    metaData = MetaDataCodec.read(in);
+                }
+            } else {
+                metaData = new MetaData();
+            }
+            timer.completed();
+            return metaData;
         }
     }
 
     @Override
     public TextBundleDir writeMetaData(MetaData metaData) throws IOException {
-        String json = new Gson().toJson(metaData);
-        Files.write(path.resolve("info.json"), json.getBytes(StandardCharsets.UTF_8));
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_METADATA, path)) {
+            try (OutputStream out = Files.newOutputStream(path.resolve("info.json"))) {
+                MetaDataCodec.write(metaData, out);
+            }
+            timer.completed(path.resolve("info.json"));
+        }
         return this;
     }
 
     @Override
     public Set<Asset> readAssets() throws IOException {
-        Set<Asset> assets = new HashSet<>();
-        Files.walkFileTree(path.resolve("assets"), new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                if (attrs.isRegularFile()) {
-                    assets.add(new Asset(path, file));
-                }
-                return FileVisitResult.CONTINUE;
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_ASSETS, path)) {
+            Set<Asset> assets = new HashSet<>();
+            Path assetsPath = path.resolve("assets");
+            if (Files.exists(assetsPath)) {
+                Files.walkFileTree(assetsPath, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            assets.add(new Asset(path, file, attrs, -1));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
             }
-        });
-        return assets;
+            timer.completed();
+            return assets;
+        }
     }
 
     @Override
     public TextBundleDir writeAsset(Asset asset) throws IOException {
-        Path assetPath = path.resolve(asset.getPath()).normalize();
-        if (!assetPath.startsWith(path)) {
-            throw new IllegalStateException("Invalid asset path - expected to be in " + path.toString());
-        }
-        updateMetaData();
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_ASSET, path)) {
+            Path assetPath = resolveAssetPath(asset);
+            updateMetaData();
 
-        Files.createDirectories(assetPath.getParent());
-        Files.write(assetPath, asset.readContent());
+            Files.createDirectories(assetPath.getParent());
+            if (assetStore != null) {
+                assetStore.materialize(asset, assetPath);
+            } else {
+                asset.copyTo(assetPath, assetCopyMode);
+            }
+            timer.completed(asset.getSize());
+        }
         return this;
     }
 
     @Override
     public TextBundleDir removeAsset(Asset asset) throws IOException {
+        try (OperationTimer timer = OperationTimer.start(Operation.REMOVE_ASSET, path)) {
+            Files.deleteIfExists(resolveAssetPath(asset));
+            timer.completed();
+        }
+        return this;
+    }
+
+    Path resolveAssetPath(Asset asset) {
         Path assetPath = path.resolve(asset.getPath()).normalize();
         if (!assetPath.startsWith(path)) {
             throw new IllegalStateException("Invalid asset path - expected to be in " + path.toString());
         }
-        Files.deleteIfExists(assetPath);
-        return this;
+        return assetPath;
     }
 
     @Override
     public TextContent readContent() throws IOException {
-        try (Stream<Path> paths = Files.walk(path)) {
-            Path contentPath = paths
-                    .filter(Files::isRegularFile)
-                    .filter(f -> f.getFileName().toString().toLowerCase().startsWith("text."))
-                    .findFirst()
-                    .orElse(this.path.resolve("text." + ContentType.MARKDOWN.getExtension()));
-
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_CONTENT, path)) {
+            Path contentPath = findContentPath();
             ContentType contentType = ContentType.findByPath(contentPath)
                     .orElseThrow(() -> new IOException("Unsupported content type " + contentPath.getFileName()));
 
-            return new TextContent(path, contentPath.getFileName().toString(), contentType);
+            TextContent content = new TextContent(path, contentPath.getFileName().toString(), contentType);
+            timer.completed();
+            return content;
         }
     }
 
+    /**
+     * Content file found in the bundle root, remembered for later reads and writes of this instance.
+     */
+    Path findContentPath() throws IOException {
+        Path found = contentPath;
+        if (found == null) {
+            found = TextContent.findContentFile(path);
+            if (found == null) {
+                return path.resolve("text." + ContentType.MARKDOWN.getExtension());
+            }
+            contentPath = found;
+        }
+        return found;
+    }
+
     @Override
     public TextBundleDir writeContent(TextContent textContent) throws IOException {
-        if (!Files.exists(path.resolve("info.json"))) {
-            writeMetaData(new MetaData());
-        }
-        updateMetaData();
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_CONTENT, path)) {
+            if (!Files.exists(path.resolve("info.json"))) {
+                writeMetaData(new MetaData());
+            }
+            updateMetaData();
 
-        Files.write(path.resolve("text." + textContent.getContentType().getExtension()), textContent.getContent());
+            Path target = path.resolve("text." + textContent.getContentType().getExtension());
+            textContent.copyTo(target);
+            contentPath = target;
+            timer.completed(target);
+        }
         return this;
     }
 
-    private void updateMetaData() throws IOException {
+    void updateMetaData() throws IOException {
         if (!Files.exists(path.resolve("info.json"))) {
             writeMetaData(new MetaData());
         }
@@ -129,44 +208,168 @@ public class TextBundleDir implements TextBundle {
         return path;
     }
 
+    /**
+     * Changes are committed by building the new version of the bundle in a temporary sibling directory, with
+     * unchanged files hard linked (or copied when links are not supported), and renaming it in place of the bundle.
+     * The bundle is swapped by two renames; should the process die between them, the new version is left
+     * in the sibling directory.
+     */
+    @Override
+    public TextBundleEdit edit() {
+        return new TextBundleEdit(this::commit);
+    }
+
+    private void commit(TextBundleEdit edit) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        String name = path.getFileName().toString();
+        Path staging = Files.createTempDirectory(parent, "." + name + ".");
+        try (OperationTimer timer = OperationTimer.start(Operation.COMMIT, path)) {
+            Path oldContent = edit.getContent() != null ? TextContent.findContentFile(path) : null;
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(staging.resolve(path.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String relativePath = path.relativize(file).toString();
+                    boolean replaced = edit.isReplaced(relativePath)
+                            || (edit.getMetaData() != null && relativePath.equals("info.json"))
+                            || file.equals(oldContent);
+                    if (!replaced) {
+                        linkOrCopy(file, staging.resolve(relativePath));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            TextBundleDir staged = new TextBundleDir(staging)
+                    .setAssetCopyMode(assetCopyMode)
+                    .setAssetStore(assetStore);
+            for (Asset asset : edit.getAssets()) {
+                staged.writeAsset(asset);
+            }
+            if (edit.getMetaData() != null) {
+                staged.writeMetaData(edit.getMetaData());
+            }
+            if (edit.getContent() != null) {
+                staged.writeContent(edit.getContent());
+            }
+            staged.updateMetaData();
+
+            Path backup = parent.resolve(staging.getFileName() + ".old");
+            Files.move(path, backup, StandardCopyOption.ATOMIC_MOVE);
+            try {
+                Files.move(staging, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(backup, path, StandardCopyOption.ATOMIC_MOVE);
+                throw e;
+            }
+            contentPath = null;
+            deleteRecursively(backup);
+            timer.completed();
+        } finally {
+            if (Files.exists(staging)) {
+                deleteRecursively(staging);
+            }
+        }
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     @Override
     public void close() {
     }
 
     public void packTo(Path targetPath) throws IOException {
-        String fileName = path.getFileName().toString();
-        int dotIndex = fileName.lastIndexOf(".");
-        if (dotIndex > 0) {
-            packTo(targetPath, fileName.substring(0, dotIndex) + ".textbundle");
-        } else {
-            packTo(targetPath, UUID.randomUUID() + ".textbundle");
-        }
+        packTo(targetPath, TextPackWriter.defaultBundleName(path));
     }
 
     public void packTo(Path targetPath, String textBundleName) throws IOException {
-        Map<String, String> env = new HashMap<>();
-        env.put("create", "true");
-        URI uri = URI.create("jar:" + targetPath.toUri().toString());
+        packTo(targetPath, textBundleName, null);
+    }
+
+    /**
+     * Packs the bundle compressing its files concurrently on the given executor. The executor is not shut down.
+     */
+    public void packTo(Path targetPath, ExecutorService executor) throws IOException {
+        packTo(targetPath, TextPackWriter.defaultBundleName(path), executor);
+    }
+
+    public void packTo(Path targetPath, String textBundleName, ExecutorService executor) throws IOException {
+        try (OperationTimer timer = OperationTimer.start(Operation.PACK, path)) {
+            writePack(targetPath, textBundleName, executor);
+            timer.completed(targetPath);
+        }
+    }
+
+    private void writePack(Path targetPath, String textBundleName, ExecutorService executor) throws IOException {
         Files.deleteIfExists(targetPath);
         if (targetPath.getParent() != null) {
             Files.createDirectories(targetPath.getParent());
         }
-        try (FileSystem fileSystem = FileSystems.newFileSystem(uri, env)) {
-            Path zipRoot = fileSystem.getPath(textBundleName);
-            Files.createDirectories(zipRoot);
-            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Files.copy(file, zipRoot.resolve(path.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
-                    return FileVisitResult.CONTINUE;
+        List<String> directories = new ArrayList<>();
+        Map<String, ByteSource> files = new LinkedHashMap<>();
+        Path infoFile = path.resolve("info.json");
+        // info.json goes first, so metadata can be read without scanning the whole archive
+        if (Files.exists(infoFile)) {
+            files.put("info.json", ByteSource.of(infoFile));
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!file.equals(infoFile)) {
+                    files.put(path.relativize(file).toString(), ByteSource.of(file));
                 }
+                return FileVisitResult.CONTINUE;
+            }
 
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    Files.createDirectories(zipRoot.resolve(path.relativize(dir).toString()));
-                    return FileVisitResult.CONTINUE;
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                directories.add(path.relativize(dir).toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        try (TextPackWriter writer = new TextPackWriter(targetPath, textBundleName)) {
+            writer.setCompressionPolicy(compressionPolicy);
+            for (String directory : directories) {
+                writer.writeDirectory(directory);
+            }
+            if (executor != null) {
+                writer.writeEntries(files, executor);
+            } else {
+                for (Map.Entry<String, ByteSource> file : files.entrySet()) {
+                    writer.writeEntry(file.getKey(), file.getValue());
                 }
-            });
+            }
         }
     }
 }
@@ -0,0 +1,118 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to a bundle staged in memory (assets only as references to their sources) and applied together
+ * on {@link #commit()}. Changes are discarded when not committed.
+ *
+ * @see TextBundle#edit()
+ */
+public class TextBundleEdit {
+
+    private final Committer committer;
+    private MetaData metaData;
+    private TextContent content;
+    private final Map<String, Asset> assets = new LinkedHashMap<>();
+    private final Set<String> removals = new LinkedHashSet<>();
+
+    TextBundleEdit(Committer committer) {
+        this.committer = committer;
+    }
+
+    public TextBundleEdit writeMetaData(MetaData metaData) {
+        this.metaData = metaData;
+        return this;
+    }
+
+    public TextBundleEdit writeContent(TextContent textContent) {
+        this.content = textContent;
+        return this;
+    }
+
+    public TextBundleEdit writeAsset(Asset asset) {
+        String name = entryName(asset);
+        removals.remove(name);
+        assets.put(name, asset);
+        return this;
+    }
+
+    public TextBundleEdit removeAsset(Asset asset) {
+        String name = entryName(asset);
+        assets.remove(name);
+        removals.add(name);
+        return this;
+    }
+
+    /**
+     * Applies all staged changes at once. The edit is empty afterwards and can be reused.
+     */
+    public void commit() throws IOException {
+        if (metaData == null && content == null && assets.isEmpty() && removals.isEmpty()) {
+            return;
+        }
+        committer.commit(this);
+        metaData = null;
+        content = null;
+        assets.clear();
+        removals.clear();
+    }
+
+    MetaData getMetaData() {
+        return metaData;
+    }
+
+    TextContent getContent() {
+        return content;
+    }
+
+    Collection<Asset> getAssets() {
+        return Collections.unmodifiableCollection(assets.values());
+    }
+
+    Set<String> getRemovals() {
+        return Collections.unmodifiableSet(removals);
+    }
+
+    /**
+     * @return whether the file at given path relative to the bundle root is replaced or removed by this edit
+     */
+    boolean isReplaced(String relativePath) {
+        String name = relativePath.replace('\\', '/');
+        return assets.containsKey(name) || removals.contains(name);
+    }
+
+    /**
+     * Applies changes one by one, for bundles without a dedicated commit.
+     */
+    void applyTo(TextBundle bundle) throws IOException {
+        for (String removal : removals) {
+            bundle.removeAsset(new Asset(removal.substring("assets/".length()), new byte[0]));
+        }
+        for (Asset asset : assets.values()) {
+            bundle.writeAsset(asset);
+        }
+        if (metaData != null) {
+            bundle.writeMetaData(metaData);
+        }
+        if (content != null) {
+            bundle.writeContent(content);
+        }
+    }
+
+    private static String entryName(Asset asset) {
+        return asset.getPath().replace('\\', '/');
+    }
+
+    @FunctionalInterface
+    interface Committer {
+
+        void commit(TextBundleEdit edit) throws IOException;
+    }
+}
@@ -0,0 +1,63 @@
+package pl.codeset.textbundle;
+
+import java.nio.file.Path;
+
+/**
+ * Receives timings and sizes of bundle I/O, for metrics and tracing. Listeners are registered globally with
+ * {@link TextBundleListeners#register(TextBundleListener)}; when none is registered, operations are not timed at all.
+ * <p>
+ * Callbacks are invoked synchronously on the thread doing the I/O, possibly while a bundle lock is held, so they
+ * must be fast, thread safe and must not call back into the bundle. Exceptions thrown by a listener are propagated
+ * to the caller of the operation.
+ */
+public interface TextBundleListener {
+
+    TextBundleListener NONE = new TextBundleListener() {
+    };
+
+    enum Operation {
+        READ_METADATA,
+        WRITE_METADATA,
+        READ_CONTENT,
+        WRITE_CONTENT,
+        READ_ASSETS,
+        WRITE_ASSET,
+        REMOVE_ASSET,
+        OPTIMIZE,
+        COMMIT,
+        PACK,
+        UNPACK,
+        COPY
+    }
+
+    /**
+     * @param path  bundle directory or pack file
+     * @param bytes bytes written or copied by the operation, {@code -1} when not known (e.g. content and assets
+     *              are read lazily, after the operation completes)
+     */
+    default void operationCompleted(Operation operation, Path path, long durationNanos, long bytes) {
+    }
+
+    default void operationFailed(Operation operation, Path path, long durationNanos) {
+    }
+
+    /**
+     * A pack was opened: its zip file system mounted ({@link TextPack}) or its central directory read
+     * ({@link TextPackReader}).
+     */
+    default void packOpened(Path path, long durationNanos) {
+    }
+
+    /**
+     * An entry was compressed into a pack by {@link TextPackWriter}, {@code compressedSize} equals {@code size}
+     * for stored entries.
+     */
+    default void entryWritten(String entryName, long size, long compressedSize) {
+    }
+
+    default void cacheHit(Path path) {
+    }
+
+    default void cacheMiss(Path path) {
+    }
+}
@@ -0,0 +1,107 @@
+package pl.codeset.textbundle;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Global registry of {@link TextBundleListener}s, shared by all bundles, writers, readers and caches.
+ */
+public final class TextBundleListeners {
+
+    private static final Object LOCK = new Object();
+    private static final List<TextBundleListener> registered = new ArrayList<>();
+    private static volatile TextBundleListener current = TextBundleListener.NONE;
+
+    private TextBundleListeners() {
+    }
+
+    public static void register(TextBundleListener listener) {
+        synchronized (LOCK) {
+            registered.add(listener);
+            update();
+        }
+    }
+
+    public static void unregister(TextBundleListener listener) {
+        synchronized (LOCK) {
+            registered.remove(listener);
+            update();
+        }
+    }
+
+    public static void clear() {
+        synchronized (LOCK) {
+            registered.clear();
+            update();
+        }
+    }
+
+    /**
+     * @return registered listener, all registered listeners combined or {@link TextBundleListener#NONE}
+     */
+    static TextBundleListener get() {
+        return current;
+    }
+
+    private static void update() {
+        if (registered.isEmpty()) {
+            current = TextBundleListener.NONE;
+        } else if (registered.size() == 1) {
+            current = registered.get(0);
+        } else {
+            current = new Composite(registered.toArray(new TextBundleListener[0]));
+        }
+    }
+
+    private static final class Composite implements TextBundleListener {
+
+        private final TextBundleListener[] listeners;
+
+        private Composite(TextBundleListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void operationCompleted(Operation operation, Path path, long durationNanos, long bytes) {
+            for (TextBundleListener listener : listeners) {
+                listener.operationCompleted(operation, path, durationNanos, bytes);
+            }
+        }
+
+        @Override
+        public void operationFailed(Operation operation, Path path, long durationNanos) {
+            for (TextBundleListener listener : listeners) {
+                listener.operationFailed(operation, path, durationNanos);
+            }
+        }
+
+        @Override
+        public void packOpened(Path path, long durationNanos) {
+            for (TextBundleListener listener : listeners) {
+                listener.packOpened(path, durationNanos);
+            }
+        }
+
+        @Override
+        public void entryWritten(String entryName, long size, long compressedSize) {
+            for (TextBundleListener listener : listeners) {
+                listener.entryWritten(entryName, size, compressedSize);
+            }
+        }
+
+        @Override
+        public void cacheHit(Path path) {
+            for (TextBundleListener listener : listeners) {
+                listener.cacheHit(path);
+            }
+        }
+
+        @Override
+        public void cacheMiss(Path path) {
+            for (TextBundleListener listener : listeners) {
+                listener.cacheMiss(path);
+            }
+        }
+    }
+}
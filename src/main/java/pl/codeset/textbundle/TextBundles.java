@@ -0,0 +1,100 @@
+package pl.codeset.textbundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Helpers working on bundles without opening them as {@link TextBundle}.
+ */
+public final class TextBundles {
+
+    private static final int MAX_METADATA_SIZE = 1024 * 1024;
+
+    private TextBundles() {
+    }
+
+    /**
+     * Reads only {@code info.json} of a bundle directory or a {@code .textpack} file. For packs the raw central
+     * directory records are searched for the entry and its data is read straight after its local header, no
+     * archive entries are materialized.
+     *
+     * @return metadata, or default metadata when the bundle has no {@code info.json}
+     */
+    public static MetaData peekMetaData(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            Path infoFile = path.resolve("info.json");
+            if (!Files.exists(infoFile)) {
+                return new MetaData();
+            }
+            try (InputStream in = Files.newInputStream(infoFile)) {
+                return MetaDataCodec.read(in);
+            }
+        }
+        if (!Files.exists(path)) {
+            throw new NoSuchFileException(path.toString());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ZipDirectory directory = ZipDirectory.read(channel, 0, channel.size());
+            if (directory != null) {
+                ZipDirectory.Record record = directory.getRecord(directory.findRootPath() + "info.json");
+                if (record == null) {
+                    return new MetaData();
+                }
+                if (record.getCompressedSize() <= MAX_METADATA_SIZE
+                        && (record.getMethod() == ZipEntry.STORED || record.getMethod() == ZipEntry.DEFLATED)) {
+                    long dataPosition = ZipDirectory.dataPosition(channel, 0, record);
+                    ByteBuffer data = ZipDirectory.readFully(channel, dataPosition, (int) record.getCompressedSize());
+                    if (record.getMethod() == ZipEntry.STORED) {
+                        return MetaDataCodec.read(new ByteArrayInputStream(data.array(), 0, data.limit()));
+                    }
+                    // one extra byte, raw inflater may need it to detect the end of data
+                    byte[] bytes = Arrays.copyOf(data.array(), data.limit() + 1);
+                    Inflater inflater = new Inflater(true);
+                    try {
+                        return MetaDataCodec.read(new InflaterInputStream(new ByteArrayInputStream(bytes), inflater));
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            }
+        }
+        try (TextPackReader reader = new TextPackReader(path)) {
+            return reader.readMetaData();
+        }
+    }
+
+    /**
+     * Reads metadata of many bundles in parallel (see {@link #peekMetaData(Path)}).
+     *
+     * @throws UncheckedIOException when metadata of any bundle cannot be read
+     */
+    public static Map<Path, MetaData> scanMetaData(Stream<Path> paths) {
+        Map<Path, MetaData> result = new ConcurrentHashMap<>();
+        paths.parallel().forEach(path -> {
+            try {
+                MetaData metaData = peekMetaData(path);
+                if (metaData != null) {
+                    result.put(path, metaData);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read metadata of " + path, e);
+            }
+        });
+        return result;
+    }
+}
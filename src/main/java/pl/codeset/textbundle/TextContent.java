@@ -1,18 +1,64 @@
 package pl.codeset.textbundle;
 
+import org.apache.commons.io.input.ReaderInputStream;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
 
+/**
+ * UTF-8 text of a bundle. Content read from a bundle directory or a {@link TextPackReader} and content created
+ * from a stream is kept at its source and decoded incrementally by {@link #openReader()} and {@link #lines()};
+ * it is read into memory only when {@link #getContent()} or {@link #getContentAsString()} is called.
+ * <p>
+ * Content read from a bundle directory is not a snapshot: once its file is rewritten, replaced or moved (by
+ * {@link TextBundle#writeContent(TextContent)}, a committed edit or another process) reading content that was not
+ * loaded into memory yet fails with an {@link IOException}, never returning the new text.
+ */
 public class TextContent {
 
     private ContentType contentType;
     private byte[] content;
+    private ByteSource source;
 
+    /**
+     * Content files on the default file system are read on first use, so they can be mapped by {@link #asByteBuffer()}
+     * without reading them into the heap.
+     */
     TextContent(Path bundlePath, String contentPath, ContentType contentType) throws IOException {
         this.contentType = contentType;
-        this.content = Files.readAllBytes(bundlePath.resolve(contentPath));
+        Path path = bundlePath.resolve(contentPath);
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            if (!Files.isRegularFile(path)) {
+                throw new NoSuchFileException(path.toString());
+            }
+            this.source = unchangedFile(path);
+        } else {
+            this.content = Files.readAllBytes(path);
+        }
+    }
+
+    TextContent(ContentType contentType, ByteSource source) {
+        this.contentType = contentType;
+        this.source = source;
     }
 
     public TextContent(ContentType contentType) {
@@ -28,12 +74,155 @@ public class TextContent {
         this(contentType, content.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Content read from UTF-8 encoded stream. The stream is read once, when the content is written to a bundle
+     * or requested, and closed afterwards.
+     */
+    public TextContent(ContentType contentType, InputStream content) {
+        this(contentType, ByteSource.once(() -> content));
+    }
+
+    /**
+     * Content read from the reader, encoded as UTF-8. The reader is read once, when the content is written
+     * to a bundle or requested, and closed afterwards.
+     */
+    public TextContent(ContentType contentType, Reader content) {
+        this(contentType, ByteSource.once(() -> ReaderInputStream.builder()
+                .setReader(content)
+                .setCharset(StandardCharsets.UTF_8)
+                .get()));
+    }
+
     public byte[] getContent() {
+        if (content == null && source != null) {
+            try (InputStream in = source.openStream()) {
+                content = Asset.readFully(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         return content;
     }
 
     public String getContentAsString() {
-        return new String(content, StandardCharsets.UTF_8);
+        return new String(getContent(), StandardCharsets.UTF_8);
+    }
+
+    public InputStream openInputStream() throws IOException {
+        if (content == null && source != null) {
+            return source.openStream();
+        }
+        return new ByteArrayInputStream(content != null ? content : new byte[0]);
+    }
+
+    /**
+     * Opens reader decoding the content as it is read, without loading whole content into memory.
+     */
+    public BufferedReader openReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(openInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lines of the content, read lazily. The stream must be closed.
+     */
+    public Stream<String> lines() throws IOException {
+        BufferedReader reader = openReader();
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns read-only view of the content, memory mapped when the content was not read yet from a file
+     * of a bundle directory.
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (content == null && source != null) {
+            return source.asByteBuffer();
+        }
+        return ByteBuffer.wrap(content != null ? content : new byte[0]).asReadOnlyBuffer();
+    }
+
+    /**
+     * Source of the file as it is now, failing to open once the file is replaced or modified.
+     */
+    private static ByteSource unchangedFile(Path path) throws IOException {
+        BasicFileAttributes read = Files.readAttributes(path, BasicFileAttributes.class);
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                InputStream in = Files.newInputStream(path);
+                try {
+                    checkUnchanged();
+                } catch (IOException e) {
+                    in.close();
+                    throw e;
+                }
+                return in;
+            }
+
+            @Override
+            public ByteBuffer asByteBuffer() throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    checkUnchanged();
+                    return ByteSource.map(channel, 0, channel.size());
+                }
+            }
+
+            @Override
+            public Path getPath() {
+                return path;
+            }
+
+            private void checkUnchanged() throws IOException {
+                BasicFileAttributes current = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!Objects.equals(read.fileKey(), current.fileKey()) || read.size() != current.size()
+                        || !read.lastModifiedTime().equals(current.lastModifiedTime())) {
+                    throw new IOException("Content file changed since the content was read: " + path);
+                }
+            }
+        };
+    }
+
+    ByteSource asByteSource() {
+        if (content == null && source != null) {
+            return source;
+        }
+        return ByteSource.of(content != null ? content : new byte[0]);
+    }
+
+    /**
+     * Streams the content to the file, unless it was read from that file and not changed since.
+     */
+    void copyTo(Path target) throws IOException {
+        if (content == null && source != null) {
+            Path sourcePath = source.getPath();
+            if (sourcePath != null && Files.exists(target) && Files.isSameFile(sourcePath, target)) {
+                return;
+            }
+        }
+        try (InputStream in = openInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Finds {@code text.*} file in the bundle root, listing the root only.
+     *
+     * @return content file or {@code null} when there is none
+     */
+    static Path findContentFile(Path bundleRoot) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(bundleRoot,
+                file -> file.getFileName().toString().toLowerCase().startsWith("text.") && Files.isRegularFile(file))) {
+            Iterator<Path> iterator = files.iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
     }
 
     public ContentType getContentType() {
@@ -45,10 +234,12 @@ public class TextContent {
     }
 
     public void setContent(String content) {
+        this.source = null;
         this.content = content != null ? content.getBytes(StandardCharsets.UTF_8) : new byte[0];
     }
 
     public void setContent(byte[] content) {
+        this.source = null;
         this.content = content != null ? content : new byte[0];
     }
 }
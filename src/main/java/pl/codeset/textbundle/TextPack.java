@@ -1,10 +1,11 @@
 package pl.codeset.textbundle;
 
-import com.google.gson.Gson;
+import pl.codeset.textbundle.TextBundleListener.Operation;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -18,136 +19,234 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * TextBundle packed into a single zip file, backed by a zip file system. Changes are written to the file on
+ * {@link #close()}.
+ * <p>
+ * Instances are safe for use by multiple threads: reads share the open archive and run concurrently, writes are
+ * serialized and exclusive. Assets returned by {@link #readAssets()} read their content lazily, reading them after
+ * the pack is closed fails.
+ */
 public class TextPack implements TextBundle {
 
     private final Path filePath;
-    private final FileSystem fileSystem;
-    private Path innerPath;
+    private volatile FileSystem fileSystem;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Path innerPath;
+    private volatile boolean modified;
+    private volatile Path contentPath;
 
     public TextPack(Path path) throws IOException {
         filePath = path;
-        Map<String, String> env = new HashMap<>();
-        env.put("create", "true");
-        URI uri = URI.create("jar:" + path.toUri().toString());
         if (path.getParent() != null) {
             Files.createDirectories(path.getParent());
         }
-        fileSystem = FileSystems.newFileSystem(uri, env);
+        fileSystem = openFileSystem(path);
+    }
+
+    private static FileSystem openFileSystem(Path path) throws IOException {
+        long start = OperationTimer.startPackOpen();
+        Map<String, String> env = new HashMap<>();
+        env.put("create", "true");
+        URI uri = URI.create("jar:" + path.toUri().toString());
+        FileSystem fileSystem = FileSystems.newFileSystem(uri, env);
+        OperationTimer.packOpened(path, start);
+        return fileSystem;
     }
 
     private Path getInnerPath() {
-        if (innerPath == null) {
-            try (Stream<Path> files = Files.list(fileSystem.getPath("/"))) {
-                Set<String> paths = files
-                        .filter(p -> p.getFileName().toString().toLowerCase().endsWith(".textbundle") || p.getFileName().toString().toLowerCase().equals("info.json"))
-                        .map(path -> path.getFileName().toString())
-                        .collect(Collectors.toSet());
-                for (String path : paths) {
-                    if (path.toLowerCase().equals("info.json")) {
-                        innerPath = fileSystem.getPath("/");
-                        break;
-                    } else if (path.toLowerCase().endsWith(".textbundle")) {
-                        innerPath = fileSystem.getPath("/").resolve(path);
-                        break;
-                    }
-                }
+        Path path = innerPath;
+        if (path == null) {
+            synchronized (this) {
                 if (innerPath == null) {
-                    String fileName = filePath.getFileName().toString();
-                    int dotIndex = fileName.lastIndexOf(".");
-                    if (dotIndex > 0) {
-                        innerPath = fileSystem.getPath("/").resolve(fileName.substring(0, dotIndex) + ".textbundle");
-                    } else {
-                        innerPath = fileSystem.getPath("/").resolve(UUID.randomUUID() + ".textbundle");
-                    }
-                    Files.createDirectories(innerPath);
+                    innerPath = findInnerPath();
+                }
+                path = innerPath;
+            }
+        }
+        return path;
+    }
+
+    private Path findInnerPath() {
+        try (Stream<Path> files = Files.list(fileSystem.getPath("/"))) {
+            Set<String> paths = files
+                    .filter(p -> p.getFileName().toString().toLowerCase().endsWith(".textbundle") || p.getFileName().toString().toLowerCase().equals("info.json"))
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.toSet());
+            for (String path : paths) {
+                if (path.toLowerCase().equals("info.json")) {
+                    return fileSystem.getPath("/");
+                } else if (path.toLowerCase().endsWith(".textbundle")) {
+                    return fileSystem.getPath("/").resolve(path);
                 }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
+            Path innerPath = fileSystem.getPath("/").resolve(TextPackWriter.defaultBundleName(filePath));
+            Files.createDirectories(innerPath);
+            modified = true;
+            return innerPath;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return innerPath;
     }
 
     @Override
     public MetaData readMetaData() throws IOException {
-        try {
-            byte[] bytes = Files.readAllBytes(getInnerPath().resolve("info.json"));
-            return new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8), MetaData.class);
-        } catch (NoSuchFileException e) {
-            return new MetaData();
+        lock.readLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_METADATA, filePath)) {
+            MetaData metaData;
+            try (InputStream in = Files.newInputStream(getInnerPath().resolve("info.json"))) {
+                metaData = MetaDataCodec.read(in);
+            } catch (NoSuchFileException e) {
+                metaData = new MetaData();
+            }
+            timer.completed();
+            return metaData;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
     @Override
     public TextPack writeMetaData(MetaData metaData) throws IOException {
-        String json = new Gson().toJson(metaData);
-        Files.write(getInnerPath().resolve("info.json"), json.getBytes(StandardCharsets.UTF_8));
-        return this;
+        lock.writeLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_METADATA, filePath)) {
+            try (OutputStream out = Files.newOutputStream(getInnerPath().resolve("info.json"))) {
+                MetaDataCodec.write(metaData, out);
+            }
+            modified = true;
+            timer.completed(getInnerPath().resolve("info.json"));
+            return this;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public Set<Asset> readAssets() throws IOException {
-        Set<Asset> assets = new HashSet<>();
-        Path assetsPath = getInnerPath().resolve("assets");
-        if (!Files.exists(assetsPath)) {
+        lock.readLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_ASSETS, filePath)) {
+            Set<Asset> assets = new HashSet<>();
+            Path assetsPath = getInnerPath().resolve("assets");
+            if (!Files.exists(assetsPath)) {
+                timer.completed();
+                return assets;
+            }
+            Files.walkFileTree(assetsPath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        assets.add(new Asset(getInnerPath(), file, attrs, readCrc(file)));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            timer.completed();
             return assets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long readCrc(Path file) {
+        try {
+            Object crc = Files.getAttribute(file, "zip:crc");
+            return crc instanceof Long ? (Long) crc : -1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return -1;
         }
-        Files.walkFileTree(assetsPath, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                if (attrs.isRegularFile()) {
-                    assets.add(new Asset(getInnerPath(), file));
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-        return assets;
     }
 
     @Override
     public TextPack writeAsset(Asset asset) throws IOException {
-        Path path = getInnerPath().resolve(asset.getPath());
-        if (path.getParent() != null) {
-            Files.createDirectories(path.getParent());
-        }
-        updateMetaData();
+        lock.writeLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_ASSET, filePath)) {
+            Path path = resolveAssetPath(asset);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            updateMetaData();
 
-        Files.write(fileSystem.getPath("/").resolve(path), asset.readContent());
-        return this;
+            asset.copyTo(fileSystem.getPath("/").resolve(path));
+            modified = true;
+            timer.completed(asset.getSize());
+            return this;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public TextPack removeAsset(Asset asset) throws IOException {
-        Files.deleteIfExists(getInnerPath().resolve(asset.getPath()));
-        return this;
+        lock.writeLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.REMOVE_ASSET, filePath)) {
+            modified |= Files.deleteIfExists(resolveAssetPath(asset));
+            timer.completed();
+            return this;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Path resolveAssetPath(Asset asset) {
+        Path assetPath = getInnerPath().resolve(asset.getPath()).normalize();
+        if (!assetPath.startsWith(getInnerPath())) {
+            throw new IllegalStateException("Invalid asset path - expected to be in " + getInnerPath().toString());
+        }
+        return assetPath;
     }
 
     @Override
     public TextContent readContent() throws IOException {
-        try (Stream<Path> paths = Files.walk(getInnerPath())) {
-            Path contentPath = paths
-                    .filter(Files::isRegularFile)
-                    .filter(f -> f.getFileName().toString().toLowerCase().startsWith("text."))
-                    .findFirst()
-                    .orElse(getInnerPath().resolve("text." + ContentType.MARKDOWN.getExtension()));
-
+        lock.readLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.READ_CONTENT, filePath)) {
+            Path contentPath = findContentPath();
             ContentType contentType = ContentType.findByPath(contentPath)
                     .orElseThrow(() -> new IOException("Unsupported content type " + contentPath.getFileName()));
 
-            return new TextContent(getInnerPath(), contentPath.getFileName().toString(), contentType);
+            TextContent content = new TextContent(getInnerPath(), contentPath.getFileName().toString(), contentType);
+            timer.completed();
+            return content;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Content file found in the bundle root, remembered for later reads and writes of this instance.
+     */
+    private Path findContentPath() throws IOException {
+        Path found = contentPath;
+        if (found == null) {
+            found = TextContent.findContentFile(getInnerPath());
+            if (found == null) {
+                return getInnerPath().resolve("text." + ContentType.MARKDOWN.getExtension());
+            }
+            contentPath = found;
         }
+        return found;
     }
 
     @Override
     public TextPack writeContent(TextContent textContent) throws IOException {
-        updateMetaData();
+        lock.writeLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.WRITE_CONTENT, filePath)) {
+            updateMetaData();
 
-        Files.write(getInnerPath().resolve("text." + textContent.getContentType().getExtension()), textContent.getContent());
-        return this;
+            Path target = getInnerPath().resolve("text." + textContent.getContentType().getExtension());
+            textContent.copyTo(target);
+            contentPath = target;
+            modified = true;
+            timer.completed(target);
+            return this;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     private void updateMetaData() throws IOException {
@@ -156,14 +255,13 @@ public class TextPack implements TextBundle {
         }
     }
 
-    public void optimize() throws IOException {
-        String contentAsString = readContent().getContentAsString();
-        Set<Asset> assets = readAssets();
-        Set<Asset> toRemove = assets.stream()
-                .filter(a -> !contentAsString.contains(a.getPath()))
-                .collect(Collectors.toSet());
-        for (Asset asset : toRemove) {
-            removeAsset(asset);
+    @Override
+    public Set<Asset> optimize(boolean dryRun) throws IOException {
+        lock.writeLock().lock();
+        try {
+            return TextBundle.super.optimize(dryRun);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -172,28 +270,166 @@ public class TextPack implements TextBundle {
         return filePath;
     }
 
+    /**
+     * Changes are committed in one pass: pending changes of the pack are flushed, the archive is rewritten with
+     * unchanged entries copied without recompression and staged entries added, and replaced atomically.
+     * Assets read from the pack before the commit can not be read afterwards.
+     */
+    @Override
+    public TextBundleEdit edit() {
+        return new TextBundleEdit(this::commit);
+    }
+
+    private void commit(TextBundleEdit edit) throws IOException {
+        lock.writeLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.COMMIT, filePath)) {
+            Path oldContent = findContentPath();
+            String oldContentName = Files.exists(oldContent) ? getInnerPath().relativize(oldContent).toString() : null;
+            fileSystem.close();
+            try {
+                TextPackUpdater updater = new TextPackUpdater(filePath);
+                for (String removal : edit.getRemovals()) {
+                    updater.remove(removal);
+                }
+                for (Asset asset : edit.getAssets()) {
+                    updater.writeAsset(asset);
+                }
+                if (edit.getMetaData() != null) {
+                    updater.writeMetaData(edit.getMetaData());
+                }
+                if (edit.getContent() != null) {
+                    String contentName = "text." + edit.getContent().getContentType().getExtension();
+                    if (oldContentName != null && !oldContentName.equals(contentName)) {
+                        updater.remove(oldContentName);
+                    }
+                    updater.writeContent(edit.getContent());
+                }
+                updater.commitByRewrite();
+                timer.completed(filePath);
+            } finally {
+                fileSystem = openFileSystem(filePath);
+                innerPath = null;
+                contentPath = null;
+                modified = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        fileSystem.close();
+        lock.writeLock().lock();
+        try {
+            fileSystem.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    public void unpackTo(Path path) throws IOException {
-        if (!Files.exists(path)) {
-            Files.createDirectories(path);
-        }
-        Path zipRoot = getInnerPath();
-        Files.walkFileTree(zipRoot, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.copy(file, path.resolve(zipRoot.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
-                return FileVisitResult.CONTINUE;
+    /**
+     * Copies the pack to another file. When there are no pending changes, compressed entries are copied as they are,
+     * without inflating them.
+     */
+    public void copyTo(Path targetPath) throws IOException {
+        copyTo(targetPath, getInnerPath().getFileName() == null ? TextPackWriter.defaultBundleName(targetPath)
+                : getInnerPath().getFileName().toString());
+    }
+
+    /**
+     * Copies the pack to another file, placing its entries in the given inner bundle folder.
+     */
+    public void copyTo(Path targetPath, String textBundleName) throws IOException {
+        lock.readLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.COPY, filePath)) {
+            if (!modified && Files.isRegularFile(filePath)) {
+                try (TextPackReader reader = new TextPackReader(filePath)) {
+                    reader.copyTo(targetPath, textBundleName);
+                }
+                timer.completed(targetPath);
+                return;
+            }
+            if (targetPath.getParent() != null) {
+                Files.createDirectories(targetPath.getParent());
             }
+            Path zipRoot = getInnerPath();
+            try (TextPackWriter writer = new TextPackWriter(targetPath, textBundleName);
+                 Stream<Path> files = Files.walk(zipRoot)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    writer.writeEntry(zipRoot.relativize(file).toString(), ByteSource.of(file));
+                }
+            }
+            timer.completed(targetPath);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Files.createDirectories(path.resolve(zipRoot.relativize(dir).toString()));
-                return FileVisitResult.CONTINUE;
+    public void unpackTo(Path path) throws IOException {
+        unpackTo(path, (AssetStore) null);
+    }
+
+    /**
+     * Unpacks entries concurrently on the given executor, see {@link TextPackReader#unpackTo(Path, ExecutorService)}.
+     * A pack with pending changes is unpacked sequentially. The executor is not shut down.
+     */
+    public void unpackTo(Path path, ExecutorService executor) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!modified && Files.isRegularFile(filePath)) {
+                try (TextPackReader reader = new TextPackReader(filePath)) {
+                    reader.unpackTo(path, executor);
+                }
+                return;
             }
-        });
+        } finally {
+            lock.readLock().unlock();
+        }
+        unpackTo(path, (AssetStore) null);
+    }
+
+    /**
+     * Unpacks the bundle, deduplicating assets through the given store (when not {@code null}).
+     */
+    public void unpackTo(Path path, AssetStore assetStore) throws IOException {
+        lock.readLock().lock();
+        try (OperationTimer timer = OperationTimer.start(Operation.UNPACK, filePath)) {
+            Path root = path.toAbsolutePath().normalize();
+            Files.createDirectories(root);
+            Path zipRoot = getInnerPath();
+            Path assetsRoot = zipRoot.resolve("assets");
+            long[] bytes = new long[1];
+            Files.walkFileTree(zipRoot, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    bytes[0] += attrs.size();
+                    Path target = resolveTarget(file);
+                    Files.createDirectories(target.getParent());
+                    if (assetStore != null && file.startsWith(assetsRoot)) {
+                        assetStore.materialize(new Asset(zipRoot, file, attrs, -1), target);
+                    } else {
+                        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(resolveTarget(dir));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private Path resolveTarget(Path entry) {
+                    Path target = root.resolve(zipRoot.relativize(entry).toString()).normalize();
+                    if (!target.startsWith(root)) {
+                        throw new IllegalStateException("Invalid entry path - expected to be in " + root);
+                    }
+                    return target;
+                }
+            });
+            timer.completed(bytes[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 }
@@ -0,0 +1,636 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read-only {@link TextPack} access. The central directory is parsed once when the reader is opened, entries are
+ * then read straight from their offsets, so opening a large pack does not depend on its size.
+ * Instances are safe for use by concurrent readers: the data offset of each entry is resolved once, on first access,
+ * under a lock, and entry data is then read with positional reads of the shared channel.
+ */
+public class TextPackReader implements AutoCloseable {
+
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+    private static final int UNPACK_BUFFER_SIZE = 64 * 1024;
+
+    private final Path filePath;
+    private final FileChannel channel;
+    private final ZipFile zipFile;
+    private final String rootPath;
+    private final Map<String, ZipArchiveEntry> entries;
+    private final List<String> directories;
+    private final String contentEntry;
+    private final Set<ZipArchiveEntry> resolvedEntries = ConcurrentHashMap.newKeySet();
+
+    public TextPackReader(Path path) throws IOException {
+        filePath = path;
+        long start = OperationTimer.startPackOpen();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            zipFile = ZipFile.builder()
+                    .setSeekableByteChannel(channel)
+                    .setIgnoreLocalFileHeader(true)
+                    .get();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        rootPath = findRootPath(zipFile);
+        entries = indexEntries(zipFile, rootPath);
+        directories = indexDirectories(zipFile, rootPath);
+        contentEntry = entries.keySet().stream()
+                .filter(name -> name.indexOf('/') < 0 && name.toLowerCase().startsWith("text."))
+                .findFirst()
+                .orElse(null);
+        OperationTimer.packOpened(path, start);
+    }
+
+    static String findRootPath(ZipFile zipFile) {
+        if (zipFile.getEntry("info.json") != null) {
+            return "";
+        }
+        Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+        while (zipEntries.hasMoreElements()) {
+            String name = zipEntries.nextElement().getName();
+            int slash = name.indexOf('/');
+            if (slash > 0 && name.substring(0, slash).toLowerCase().endsWith(".textbundle")) {
+                return name.substring(0, slash + 1);
+            }
+        }
+        return "";
+    }
+
+    private static Map<String, ZipArchiveEntry> indexEntries(ZipFile zipFile, String rootPath) {
+        Map<String, ZipArchiveEntry> entries = new LinkedHashMap<>();
+        Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+        while (zipEntries.hasMoreElements()) {
+            ZipArchiveEntry entry = zipEntries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(rootPath)) {
+                entries.put(entry.getName().substring(rootPath.length()), entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Directory entries, kept only to recreate empty directories on unpack.
+     */
+    private static List<String> indexDirectories(ZipFile zipFile, String rootPath) {
+        List<String> directories = new ArrayList<>();
+        Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+        while (zipEntries.hasMoreElements()) {
+            ZipArchiveEntry entry = zipEntries.nextElement();
+            if (entry.isDirectory() && entry.getName().length() > rootPath.length()
+                    && entry.getName().startsWith(rootPath)) {
+                directories.add(entry.getName().substring(rootPath.length()));
+            }
+        }
+        return directories;
+    }
+
+    public MetaData readMetaData() throws IOException {
+        ZipArchiveEntry entry = entries.get("info.json");
+        if (entry == null) {
+            return new MetaData();
+        }
+        try (InputStream in = openStream(entry)) {
+            return MetaDataCodec.read(in);
+        }
+    }
+
+    /**
+     * Returns content read from the pack on demand, it must be used before the reader is closed.
+     */
+    public TextContent readContent() throws IOException {
+        if (contentEntry == null) {
+            throw new NoSuchFileException(filePath + ":" + rootPath + "text." + ContentType.MARKDOWN.getExtension());
+        }
+        ContentType contentType = ContentType.findByPath(Paths.get(contentEntry))
+                .orElseThrow(() -> new IOException("Unsupported content type " + contentEntry));
+        ZipArchiveEntry entry = entries.get(contentEntry);
+        return new TextContent(contentType, () -> openStream(entry));
+    }
+
+    public Set<Asset> readAssets() {
+        Set<Asset> assets = new HashSet<>();
+        for (Map.Entry<String, ZipArchiveEntry> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith("assets/")) {
+                assets.add(asset(entry.getKey(), entry.getValue()));
+            }
+        }
+        return assets;
+    }
+
+    public Optional<Asset> readAsset(String fileName) {
+        String name = "assets/" + fileName;
+        return Optional.ofNullable(entries.get(name)).map(entry -> asset(name, entry));
+    }
+
+    /**
+     * Opens a read-only channel over an entry. Positioning is cheap for entries stored without compression;
+     * for compressed entries moving backwards restarts decompression from the beginning of the entry.
+     */
+    public SeekableByteChannel openChannel(Asset asset) throws IOException {
+        ZipArchiveEntry entry = entries.get(asset.getPath().replace('\\', '/'));
+        if (entry == null) {
+            throw new NoSuchFileException(filePath + ":" + rootPath + asset.getPath());
+        }
+        long offset = dataOffset(entry);
+        if (entry.getMethod() == ZipArchiveEntry.STORED) {
+            return new StoredEntryChannel(channel, offset, entry.getSize());
+        }
+        return new InflatingEntryChannel(zipFile, entry);
+    }
+
+    /**
+     * Copies the pack to another file without inflating entries, keeping name of the inner bundle folder.
+     */
+    public void copyTo(Path targetPath) throws IOException {
+        copyTo(targetPath, rootPath.isEmpty() ? TextPackWriter.defaultBundleName(targetPath) : rootPath);
+    }
+
+    /**
+     * Copies the pack to another file without inflating entries, placing them in the given inner bundle folder.
+     */
+    public void copyTo(Path targetPath, String textBundleName) throws IOException {
+        if (targetPath.getParent() != null) {
+            Files.createDirectories(targetPath.getParent());
+        }
+        try (TextPackWriter writer = new TextPackWriter(targetPath, textBundleName)) {
+            for (Map.Entry<String, ZipArchiveEntry> entry : entries.entrySet()) {
+                dataOffset(entry.getValue());
+                try (InputStream rawData = zipFile.getRawInputStream(entry.getValue())) {
+                    writer.writeRawEntry(entry.getKey(), entry.getValue(), rawData);
+                }
+            }
+        }
+    }
+
+    public void unpackTo(Path path) throws IOException {
+        try (OperationTimer timer = OperationTimer.start(TextBundleListener.Operation.UNPACK, filePath)) {
+            long bytes = 0;
+            for (Map.Entry<Path, ZipArchiveEntry> target : prepareUnpack(path).entrySet()) {
+                bytes += extract(target.getValue(), target.getKey());
+            }
+            timer.completed(bytes);
+        }
+    }
+
+    /**
+     * Unpacks entries concurrently on the given executor, with at most 64 MiB of entries being extracted at a time.
+     * The executor is not shut down.
+     */
+    public void unpackTo(Path path, ExecutorService executor) throws IOException {
+        unpackTo(path, executor, DEFAULT_MAX_IN_FLIGHT_BYTES);
+    }
+
+    /**
+     * Unpacks entries concurrently on the given executor. Entries are submitted while uncompressed size of entries
+     * being extracted stays within {@code maxInFlightBytes}; a larger entry is extracted alone. When an entry fails,
+     * remaining entries are skipped, all running ones are awaited before the failure is thrown and the failed entry
+     * file is deleted, entries extracted before are kept. The executor is not shut down.
+     */
+    public void unpackTo(Path path, ExecutorService executor, long maxInFlightBytes) throws IOException {
+        if (maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("maxInFlightBytes must be positive");
+        }
+        try (OperationTimer timer = OperationTimer.start(TextBundleListener.Operation.UNPACK, filePath)) {
+            Map<Path, ZipArchiveEntry> targets = prepareUnpack(path);
+            InFlightBytes inFlight = new InFlightBytes(maxInFlightBytes);
+            AtomicBoolean failed = new AtomicBoolean();
+            List<Future<Long>> pending = new ArrayList<>();
+            try {
+                for (Map.Entry<Path, ZipArchiveEntry> target : targets.entrySet()) {
+                    if (failed.get()) {
+                        break;
+                    }
+                    long weight = inFlight.acquire(target.getValue().getSize());
+                    pending.add(executor.submit(() -> {
+                        try {
+                            if (failed.get()) {
+                                // queued before another entry failed, the unpack is abandoned
+                                return 0L;
+                            }
+                            return extract(target.getValue(), target.getKey());
+                        } catch (IOException | RuntimeException e) {
+                            failed.set(true);
+                            throw e;
+                        } finally {
+                            inFlight.release(weight);
+                        }
+                    }));
+                }
+                long bytes = 0;
+                for (Future<Long> future : pending) {
+                    bytes += await(future);
+                }
+                timer.completed(bytes);
+            } finally {
+                // no task may still be writing into the target once the failure is reported
+                failed.set(true);
+                awaitAll(pending);
+            }
+        }
+    }
+
+    /**
+     * Resolves and checks targets of all entries and creates their directories, including empty ones.
+     */
+    private Map<Path, ZipArchiveEntry> prepareUnpack(Path path) throws IOException {
+        Path root = path.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        for (String directory : this.directories) {
+            Path target = root.resolve(directory).normalize();
+            if (!target.startsWith(root)) {
+                throw new IllegalStateException("Invalid entry path - expected to be in " + root);
+            }
+            Files.createDirectories(target);
+        }
+        Map<Path, ZipArchiveEntry> targets = new LinkedHashMap<>();
+        Set<Path> directories = new HashSet<>();
+        for (Map.Entry<String, ZipArchiveEntry> entry : entries.entrySet()) {
+            Path target = root.resolve(entry.getKey()).normalize();
+            if (!target.startsWith(root)) {
+                throw new IllegalStateException("Invalid entry path - expected to be in " + root);
+            }
+            if (directories.add(target.getParent())) {
+                Files.createDirectories(target.getParent());
+            }
+            targets.put(target, entry.getValue());
+        }
+        return targets;
+    }
+
+    /**
+     * Extracts the entry, deleting the partially written file when extraction fails.
+     *
+     * @return number of bytes written
+     */
+    private long extract(ZipArchiveEntry entry, Path target) throws IOException {
+        try {
+            return write(entry, target);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the entry into a file sized up front to the declared entry size. Stored entries are transferred
+     * between the channels without copying them through the heap; compressed entries inflating to more than the
+     * declared size are rejected, the same as by {@link TextPackValidator}.
+     */
+    private long write(ZipArchiveEntry entry, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = entry.getSize();
+            if (size > 0) {
+                // sets the final length at once, instead of growing the file with every write
+                out.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+            long written = 0;
+            if (entry.getMethod() == ZipArchiveEntry.STORED) {
+                long offset = dataOffset(entry);
+                while (written < size) {
+                    long transferred = channel.transferTo(offset + written, size - written, out);
+                    if (transferred <= 0) {
+                        throw new EOFException("Unexpected end of entry " + entry.getName());
+                    }
+                    written += transferred;
+                }
+            } else {
+                try (InputStream in = openStream(entry)) {
+                    byte[] buffer = new byte[UNPACK_BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        if (size >= 0 && written + read > size) {
+                            throw new TextPackValidationException("Entry data larger than declared", entry.getName());
+                        }
+                        ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                        while (data.hasRemaining()) {
+                            written += out.write(data);
+                        }
+                    }
+                }
+            }
+            if (written < size) {
+                out.truncate(written);
+            }
+            return written;
+        }
+    }
+
+    private static long await(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while unpacking entries");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Failed to unpack entry", e.getCause());
+        }
+    }
+
+    /**
+     * Waits for all tasks, whatever their outcome.
+     */
+    private static void awaitAll(List<Future<Long>> futures) {
+        boolean interrupted = false;
+        for (Future<Long> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public Path getPath() {
+        return filePath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+    private Asset asset(String name, ZipArchiveEntry entry) {
+        ByteSource source = new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return TextPackReader.this.openStream(entry);
+            }
+
+            @Override
+            public ByteBuffer asByteBuffer() throws IOException {
+                if (entry.getMethod() == ZipArchiveEntry.STORED) {
+                    return ByteSource.map(channel, dataOffset(entry), entry.getSize());
+                }
+                return ByteSource.super.asByteBuffer();
+            }
+        };
+        return new Asset(name, source, entry.getSize(), FileTime.fromMillis(entry.getTime()), entry.getCrc());
+    }
+
+    private InputStream openStream(ZipArchiveEntry entry) throws IOException {
+        dataOffset(entry);
+        return zipFile.getInputStream(entry);
+    }
+
+    /**
+     * The local header is skipped on open, its length is resolved on first access to the entry data. Resolving it
+     * moves position of the shared channel and fills buffers shared by the whole zip file, so it is done under a lock;
+     * the set publishes the resolved offset to other threads.
+     */
+    private long dataOffset(ZipArchiveEntry entry) throws IOException {
+        if (!resolvedEntries.contains(entry)) {
+            synchronized (zipFile) {
+                zipFile.getRawInputStream(entry).close();
+            }
+            resolvedEntries.add(entry);
+        }
+        return entry.getDataOffset();
+    }
+
+    /**
+     * Limits uncompressed size of entries extracted at the same time.
+     */
+    private static class InFlightBytes {
+
+        private final long max;
+        private long current;
+
+        InFlightBytes(long max) {
+            this.max = max;
+        }
+
+        /**
+         * Waits until the entry fits within the limit, an entry larger than the limit waits for all others.
+         *
+         * @return bytes acquired, to be released
+         */
+        synchronized long acquire(long size) throws InterruptedIOException {
+            long bytes = Math.min(Math.max(size, 1), max);
+            try {
+                while (current + bytes > max) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while unpacking entries");
+            }
+            current += bytes;
+            return bytes;
+        }
+
+        synchronized void release(long bytes) {
+            current -= bytes;
+            notifyAll();
+        }
+    }
+
+    private static class StoredEntryChannel implements SeekableByteChannel {
+
+        private final FileChannel channel;
+        private final long offset;
+        private final long size;
+        private long position;
+        private boolean open = true;
+
+        StoredEntryChannel(FileChannel channel, long offset, long size) {
+            this.channel = channel;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > size - position) {
+                dst.limit(dst.position() + (int) (size - position));
+            }
+            try {
+                int read = channel.read(dst, offset + position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) {
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    private static class InflatingEntryChannel implements SeekableByteChannel {
+
+        private final ZipFile zipFile;
+        private final ZipArchiveEntry entry;
+        private ReadableByteChannel stream;
+        private long streamPosition;
+        private long position;
+        private boolean open = true;
+
+        InflatingEntryChannel(ZipFile zipFile, ZipArchiveEntry entry) {
+            this.zipFile = zipFile;
+            this.entry = entry;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (stream == null || position < streamPosition) {
+                if (stream != null) {
+                    stream.close();
+                }
+                stream = Channels.newChannel(zipFile.getInputStream(entry));
+                streamPosition = 0;
+            }
+            while (streamPosition < position) {
+                ByteBuffer skip = ByteBuffer.allocate((int) Math.min(8192, position - streamPosition));
+                int skipped = stream.read(skip);
+                if (skipped < 0) {
+                    return -1;
+                }
+                streamPosition += skipped;
+            }
+            int read = stream.read(dst);
+            if (read > 0) {
+                streamPosition += read;
+                position = streamPosition;
+            }
+            return read;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) {
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return entry.getSize();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.Zip64RequiredException;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies changes to an existing {@link TextPack} without rewriting it. New and modified entries are appended
+ * after the existing data together with a new central directory; entries of the original archive are never
+ * modified, so a failed update is rolled back by truncating the file. Data of replaced and removed entries stays in
+ * the file until its share of the archive exceeds the compaction threshold, then the archive is compacted by copying
+ * live entries raw, without recompression.
+ * <p>
+ * Changes are staged in memory (assets only as references to their sources) and applied on {@link #commit()}
+ * or {@link #close()}. The pack must not be open as {@link TextPack} at the same time.
+ */
+public class TextPackUpdater implements AutoCloseable {
+
+    private final Path filePath;
+    private final Map<String, ByteSource> additions = new LinkedHashMap<>();
+    private final Set<String> removals = new HashSet<>();
+    private CompressionPolicy compressionPolicy = CompressionPolicy.DEFAULT;
+    private double compactionThreshold = 0.5;
+
+    public TextPackUpdater(Path path) {
+        this.filePath = path;
+    }
+
+    public TextPackUpdater setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+        return this;
+    }
+
+    /**
+     * @param compactionThreshold share (0-1) of unreachable bytes in the archive above which it gets compacted
+     */
+    public TextPackUpdater setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+        return this;
+    }
+
+    public TextPackUpdater writeMetaData(MetaData metaData) {
+        stage("info.json", ByteSource.of(MetaDataCodec.toBytes(metaData)));
+        return this;
+    }
+
+    public TextPackUpdater writeContent(TextContent textContent) {
+        stage("text." + textContent.getContentType().getExtension(), textContent.asByteSource());
+        return this;
+    }
+
+    public TextPackUpdater writeAsset(Asset asset) {
+        stage(asset.getPath(), asset.getSource());
+        return this;
+    }
+
+    public TextPackUpdater removeAsset(Asset asset) {
+        return remove(asset.getPath());
+    }
+
+    TextPackUpdater remove(String relativePath) {
+        String name = normalize(relativePath);
+        additions.remove(name);
+        removals.add(name);
+        return this;
+    }
+
+    private void stage(String relativePath, ByteSource source) {
+        String name = normalize(relativePath);
+        removals.remove(name);
+        additions.put(name, source);
+    }
+
+    private static String normalize(String relativePath) {
+        Path normalized = Paths.get(relativePath).normalize();
+        if (normalized.isAbsolute() || normalized.startsWith("..")) {
+            throw new IllegalStateException("Invalid entry path - expected to be in bundle: " + relativePath);
+        }
+        return normalized.toString().replace(File.separatorChar, '/');
+    }
+
+    public void commit() throws IOException {
+        if (additions.isEmpty() && removals.isEmpty()) {
+            return;
+        }
+        if (!Files.exists(filePath) || Files.size(filePath) == 0) {
+            rewrite(null);
+        } else {
+            // an append that does not fit falls back to a rewrite, which reads the additions again
+            List<Path> spooled = spoolOnceSources();
+            try {
+                Result result;
+                try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    result = append(channel);
+                }
+                if (result == null) {
+                    rewrite(filePath);
+                } else if (result.deadBytes > compactionThreshold * result.totalBytes) {
+                    compact();
+                }
+            } finally {
+                for (Path file : spooled) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        additions.clear();
+        removals.clear();
+    }
+
+    /**
+     * Applies staged changes in a single rewrite of the archive instead of appending them.
+     */
+    void commitByRewrite() throws IOException {
+        rewrite(Files.exists(filePath) && Files.size(filePath) > 0 ? filePath : null);
+        additions.clear();
+        removals.clear();
+    }
+
+    /**
+     * Rewrites the archive keeping only live entries, copied without recompression.
+     */
+    public void compact() throws IOException {
+        Map<String, ByteSource> pending = new LinkedHashMap<>(additions);
+        Set<String> pendingRemovals = new HashSet<>(removals);
+        additions.clear();
+        removals.clear();
+        try {
+            rewrite(filePath);
+        } finally {
+            additions.putAll(pending);
+            removals.addAll(pendingRemovals);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+    }
+
+    /**
+     * Replaces staged sources which can be read only once with temporary copies next to the pack.
+     *
+     * @return the temporary files, to be deleted after commit
+     */
+    private List<Path> spoolOnceSources() throws IOException {
+        List<Path> spooled = new ArrayList<>();
+        try {
+            for (Map.Entry<String, ByteSource> addition : additions.entrySet()) {
+                if (!addition.getValue().isRepeatable()) {
+                    Path file = ByteSource.spool(addition.getValue(), filePath.toAbsolutePath().getParent());
+                    spooled.add(file);
+                    addition.setValue(ByteSource.of(file));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path file : spooled) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+        return spooled;
+    }
+
+    private Result append(FileChannel channel) throws IOException {
+        long end = channel.size();
+        ZipDirectory directory = ZipDirectory.read(channel, 0, end);
+        if (directory == null) {
+            return null;
+        }
+        String rootPath = directory.findRootPath();
+        List<ZipDirectory.Record> records = new ArrayList<>();
+        for (ZipDirectory.Record record : directory.getRecords()) {
+            if (record.getName().startsWith(rootPath) && isReplaced(record.getName().substring(rootPath.length()))) {
+                continue;
+            }
+            records.add(record);
+        }
+
+        try {
+            ZipArchiveOutputStream out = new ZipArchiveOutputStream(new OffsetChannel(channel, end));
+            out.setUseZip64(Zip64Mode.Never);
+            try (TextPackWriter writer = new TextPackWriter(out, rootPath)) {
+                writer.setCompressionPolicy(compressionPolicy);
+                for (ZipDirectory.Record record : records) {
+                    writer.addExistingEntry(record.getName());
+                }
+                for (Map.Entry<String, ByteSource> addition : additions.entrySet()) {
+                    writer.writeEntry(addition.getKey(), addition.getValue());
+                }
+            }
+            ZipDirectory appended = ZipDirectory.read(channel, end, channel.size());
+            if (appended == null) {
+                channel.truncate(end);
+                return null;
+            }
+            long directoryPosition = end + appended.getOffset();
+            for (ZipDirectory.Record record : appended.getRecords()) {
+                records.add(record.withLocalHeaderOffset(end + record.getLocalHeaderOffset()));
+            }
+            if (records.size() >= ZipDirectory.MAX_ENTRIES || directoryPosition >= ZipDirectory.MAX_OFFSET) {
+                channel.truncate(end);
+                return null;
+            }
+            ZipDirectory.write(channel, directoryPosition, records);
+
+            long liveBytes = 0;
+            for (ZipDirectory.Record record : records) {
+                liveBytes += record.getStoredSize();
+            }
+            return new Result(directoryPosition - liveBytes, directoryPosition);
+        } catch (Zip64RequiredException e) {
+            channel.truncate(end);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            channel.truncate(end);
+            throw e;
+        }
+    }
+
+    private boolean isReplaced(String relativeName) {
+        return additions.containsKey(relativeName) || removals.contains(relativeName);
+    }
+
+    private void rewrite(Path source) throws IOException {
+        Path parent = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, filePath.getFileName().toString(), ".tmp");
+        try {
+            if (source == null) {
+                try (TextPackWriter writer = new TextPackWriter(tempFile, TextPackWriter.defaultBundleName(filePath))) {
+                    writer.setCompressionPolicy(compressionPolicy);
+                    for (Map.Entry<String, ByteSource> addition : additions.entrySet()) {
+                        writer.writeEntry(addition.getKey(), addition.getValue());
+                    }
+                }
+            } else {
+                try (ZipFile zipFile = ZipFile.builder().setPath(source).get()) {
+                    String rootPath = TextPackReader.findRootPath(zipFile);
+                    ZipArchiveOutputStream out = new ZipArchiveOutputStream(tempFile);
+                    try (TextPackWriter writer = new TextPackWriter(out, rootPath)) {
+                        writer.setCompressionPolicy(compressionPolicy);
+                        zipFile.copyRawEntries(out, entry -> {
+                            String name = entry.getName();
+                            if (name.startsWith(rootPath) && isReplaced(name.substring(rootPath.length()))) {
+                                return false;
+                            }
+                            writer.addExistingEntry(name);
+                            return true;
+                        });
+                        for (Map.Entry<String, ByteSource> addition : additions.entrySet()) {
+                            writer.writeEntry(addition.getKey(), addition.getValue());
+                        }
+                    }
+                }
+            }
+            try {
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static class Result {
+
+        private final long deadBytes;
+        private final long totalBytes;
+
+        Result(long deadBytes, long totalBytes) {
+            this.deadBytes = deadBytes;
+            this.totalBytes = totalBytes;
+        }
+    }
+
+    /**
+     * View of a file channel starting at a given offset, so an archive can be written after existing data.
+     */
+    private static class OffsetChannel implements SeekableByteChannel {
+
+        private final FileChannel channel;
+        private final long offset;
+        private long position;
+
+        OffsetChannel(FileChannel channel, long offset) {
+            this.channel = channel;
+            this.offset = offset;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int read = channel.read(dst, offset + position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = channel.write(src, offset + position);
+            position += written;
+            return written;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) {
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return Math.max(0, channel.size() - offset);
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(offset + size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // the underlying channel is owned by the updater
+        }
+    }
+}
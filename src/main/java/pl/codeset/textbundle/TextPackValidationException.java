@@ -0,0 +1,29 @@
+package pl.codeset.textbundle;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link TextPackValidator} when a pack is malformed or unsafe to open.
+ */
+public class TextPackValidationException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entryName;
+
+    public TextPackValidationException(String message, String entryName) {
+        this(message, entryName, null);
+    }
+
+    public TextPackValidationException(String message, String entryName, Throwable cause) {
+        super(entryName != null ? message + ": " + entryName : message, cause);
+        this.entryName = entryName;
+    }
+
+    /**
+     * @return name of the offending archive entry, {@code null} when the failure concerns the whole pack
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+}
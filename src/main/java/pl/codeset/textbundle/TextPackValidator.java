@@ -0,0 +1,255 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that a pack is well-formed and safe to open before it is accepted, failing on the first problem found.
+ * <p>
+ * Only entries listed in the central directory are checked, so stale local entries left in appended archives are
+ * ignored, just as readers do. The directory is checked first: entry names (no absolute paths, {@code ..}
+ * segments, backslashes or control characters), duplicates, overlapping entries, the bundle structure
+ * ({@code info.json}, a single supported {@code text.*} file and files only under {@code assets/}), declared sizes
+ * and compression ratios. Entry data is then read in a single sequential pass, inflating with a fixed buffer and
+ * stopping as soon as an entry inflates past its declared size, and sizes and CRC32 are compared with the declared
+ * ones. Only {@code info.json} is kept in memory, to check that it parses.
+ */
+public class TextPackValidator {
+
+    private static final int BUFFER_SIZE = 8192;
+    // small entries of repeated bytes compress extremely well, ratio is checked above this size
+    private static final long MIN_SIZE_FOR_RATIO = 64 * 1024;
+
+    private int maxEntries = 10_000;
+    private long maxEntrySize = 512L * 1024 * 1024;
+    private long maxTotalSize = 2L * 1024 * 1024 * 1024;
+    private int maxCompressionRatio = 100;
+    private int maxMetaDataSize = 1024 * 1024;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public TextPackValidator setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Largest uncompressed size of a single entry.
+     */
+    public TextPackValidator setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+
+    public long getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    /**
+     * Largest uncompressed size of all entries together.
+     */
+    public TextPackValidator setMaxTotalSize(long maxTotalSize) {
+        this.maxTotalSize = maxTotalSize;
+        return this;
+    }
+
+    public int getMaxCompressionRatio() {
+        return maxCompressionRatio;
+    }
+
+    /**
+     * Largest uncompressed to compressed size ratio of an entry larger than 64 KiB.
+     */
+    public TextPackValidator setMaxCompressionRatio(int maxCompressionRatio) {
+        this.maxCompressionRatio = maxCompressionRatio;
+        return this;
+    }
+
+    public int getMaxMetaDataSize() {
+        return maxMetaDataSize;
+    }
+
+    public TextPackValidator setMaxMetaDataSize(int maxMetaDataSize) {
+        this.maxMetaDataSize = maxMetaDataSize;
+        return this;
+    }
+
+    /**
+     * @throws TextPackValidationException when the pack is invalid
+     * @throws IOException                 when the file can not be read
+     */
+    public void validate(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ZipFile zipFile;
+            try {
+                zipFile = ZipFile.builder()
+                        .setSeekableByteChannel(channel)
+                        .get();
+            } catch (IOException e) {
+                throw new TextPackValidationException("Not a valid zip archive", null, e);
+            }
+            try {
+                validate(zipFile);
+            } finally {
+                zipFile.close();
+            }
+        }
+    }
+
+    private void validate(ZipFile zipFile) throws IOException {
+        List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntriesInPhysicalOrder());
+        if (entries.size() > maxEntries) {
+            throw new TextPackValidationException("Too many entries (" + entries.size() + ")", null);
+        }
+        String rootPath = TextPackReader.findRootPath(zipFile);
+        checkDirectory(zipFile, entries, rootPath);
+        for (ZipArchiveEntry entry : entries) {
+            if (!entry.isDirectory()) {
+                checkData(zipFile, entry, entry.getName().equals(rootPath + "info.json"));
+            }
+        }
+    }
+
+    private void checkDirectory(ZipFile zipFile, List<ZipArchiveEntry> entries, String rootPath) throws IOException {
+        Set<String> names = new HashSet<>();
+        boolean metaData = false;
+        boolean content = false;
+        long totalSize = 0;
+        long previousEnd = 0;
+        for (ZipArchiveEntry entry : entries) {
+            String name = entry.getName();
+            checkEntryName(name);
+            if (!names.add(name)) {
+                throw new TextPackValidationException("Duplicate entry", name);
+            }
+            if (entry.getLocalHeaderOffset() < previousEnd) {
+                throw new TextPackValidationException("Entry overlaps previous entry", name);
+            }
+            previousEnd = entry.getDataOffset() + entry.getCompressedSize();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (!zipFile.canReadEntryData(entry)) {
+                throw new TextPackValidationException("Unsupported compression method or encryption", name);
+            }
+            if (!name.startsWith(rootPath)) {
+                throw new TextPackValidationException("Entry outside of the bundle folder", name);
+            }
+
+            String relativePath = name.substring(rootPath.length());
+            if (relativePath.equals("info.json")) {
+                metaData = true;
+                if (entry.getSize() > maxMetaDataSize) {
+                    throw new TextPackValidationException("Metadata too large", name);
+                }
+            } else if (relativePath.indexOf('/') < 0 && relativePath.toLowerCase().startsWith("text.")) {
+                if (content) {
+                    throw new TextPackValidationException("More than one content file", name);
+                }
+                if (!ContentType.findByPath(Paths.get(relativePath)).isPresent()) {
+                    throw new TextPackValidationException("Unsupported content type", name);
+                }
+                content = true;
+            } else if (!relativePath.startsWith("assets/")) {
+                throw new TextPackValidationException("Unexpected entry", name);
+            }
+
+            long size = entry.getSize();
+            if (size < 0 || size > maxEntrySize) {
+                throw new TextPackValidationException("Entry too large (" + size + " bytes)", name);
+            }
+            totalSize += size;
+            if (totalSize > maxTotalSize) {
+                throw new TextPackValidationException("Total size of entries exceeds " + maxTotalSize + " bytes", name);
+            }
+            if (size > MIN_SIZE_FOR_RATIO && size > entry.getCompressedSize() * maxCompressionRatio) {
+                throw new TextPackValidationException("Compression ratio exceeds " + maxCompressionRatio, name);
+            }
+        }
+        if (!metaData) {
+            throw new TextPackValidationException("Missing info.json", null);
+        }
+        if (!content) {
+            throw new TextPackValidationException("Missing text content file", null);
+        }
+    }
+
+    private void checkData(ZipFile zipFile, ZipArchiveEntry entry, boolean isMetaData) throws IOException {
+        String name = entry.getName();
+        ByteArrayOutputStream metaData = isMetaData ? new ByteArrayOutputStream() : null;
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > entry.getSize()) {
+                    throw new TextPackValidationException("Entry data larger than declared", name);
+                }
+                crc.update(buffer, 0, read);
+                if (metaData != null) {
+                    metaData.write(buffer, 0, read);
+                }
+            }
+        } catch (TextPackValidationException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new TextPackValidationException("Corrupted entry data", name, e);
+        }
+        if (size != entry.getSize()) {
+            throw new TextPackValidationException("Entry data smaller than declared", name);
+        }
+        if (crc.getValue() != entry.getCrc()) {
+            throw new TextPackValidationException("CRC mismatch", name);
+        }
+        if (metaData != null) {
+            try {
+                MetaDataCodec.read(new ByteArrayInputStream(metaData.toByteArray()));
+            } catch (IOException | RuntimeException e) {
+                throw new TextPackValidationException("Invalid info.json", name, e);
+            }
+        }
+    }
+
+    /**
+     * Rejects names that could resolve outside of the extraction directory.
+     */
+    static void checkEntryName(String name) throws TextPackValidationException {
+        if (name.isEmpty() || name.startsWith("/") || name.indexOf('\\') >= 0
+                || (name.length() > 1 && name.charAt(1) == ':')) {
+            throw new TextPackValidationException("Unsafe entry name", name);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isISOControl(name.charAt(i))) {
+                throw new TextPackValidationException("Unsafe entry name", name);
+            }
+        }
+        String path = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        for (String segment : path.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new TextPackValidationException("Unsafe entry name", name);
+            }
+        }
+    }
+}
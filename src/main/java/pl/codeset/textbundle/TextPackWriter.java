@@ -0,0 +1,287 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Write-only {@link TextPack} producer. Entries are streamed to the archive in a single pass, without
+ * temporary files, so the target can be any {@link OutputStream} (e.g. an HTTP response).
+ * Closing the writer adds default {@code info.json} when no metadata was written.
+ */
+public class TextPackWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ZipArchiveOutputStream out;
+    private final String rootPath;
+    private final Set<String> entries = new HashSet<>();
+    private CompressionPolicy compressionPolicy = CompressionPolicy.DEFAULT;
+
+    public TextPackWriter(Path targetPath) throws IOException {
+        this(targetPath, defaultBundleName(targetPath));
+    }
+
+    public TextPackWriter(Path targetPath, String textBundleName) throws IOException {
+        this(new ZipArchiveOutputStream(targetPath), textBundleName);
+    }
+
+    public TextPackWriter(OutputStream out, String textBundleName) {
+        this(new ZipArchiveOutputStream(out), textBundleName);
+    }
+
+    TextPackWriter(ZipArchiveOutputStream out, String textBundleName) {
+        this.out = out;
+        this.rootPath = textBundleName.isEmpty() || textBundleName.endsWith("/") ? textBundleName : textBundleName + "/";
+    }
+
+    static String defaultBundleName(Path path) {
+        String fileName = path.getFileName().toString();
+        int dotIndex = fileName.lastIndexOf(".");
+        if (dotIndex > 0) {
+            return fileName.substring(0, dotIndex) + ".textbundle";
+        } else {
+            return UUID.randomUUID() + ".textbundle";
+        }
+    }
+
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    public TextPackWriter setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+        return this;
+    }
+
+    public TextPackWriter writeMetaData(MetaData metaData) throws IOException {
+        writeEntry("info.json", ByteSource.of(MetaDataCodec.toBytes(metaData)));
+        return this;
+    }
+
+    public TextPackWriter writeContent(TextContent textContent) throws IOException {
+        writeEntry("text." + textContent.getContentType().getExtension(), textContent.asByteSource());
+        return this;
+    }
+
+    public TextPackWriter writeAsset(Asset asset) throws IOException {
+        writeEntry(asset.getPath(), asset.getSource());
+        return this;
+    }
+
+    /**
+     * Marks an entry (full name in the archive) as already present, e.g. when appending to an existing archive.
+     */
+    void addExistingEntry(String name) {
+        entries.add(name);
+    }
+
+    void writeDirectory(String relativePath) throws IOException {
+        String name = entryName(relativePath);
+        if (name.isEmpty()) {
+            return;
+        }
+        if (!name.endsWith("/")) {
+            name = name + "/";
+        }
+        if (entries.add(name)) {
+            int parentEnd = name.lastIndexOf('/', name.length() - 2);
+            if (parentEnd > 0) {
+                writeDirectory(name.substring(rootPath.length(), parentEnd + 1));
+            }
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setTime(System.currentTimeMillis());
+            out.putArchiveEntry(entry);
+            out.closeArchiveEntry();
+        }
+    }
+
+    void writeEntry(String relativePath, ByteSource source) throws IOException {
+        ZipArchiveEntry entry = createEntry(reserveEntry(relativePath), source);
+        if (entry.getMethod() == ZipArchiveEntry.STORED && !out.isSeekable() && !source.isRepeatable()) {
+            // read twice below, for the local header and for the data
+            Path spooled = ByteSource.spool(source, null);
+            try {
+                writeEntry(entry, ByteSource.of(spooled));
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+        } else {
+            writeEntry(entry, source);
+        }
+    }
+
+    private void writeEntry(ZipArchiveEntry entry, ByteSource source) throws IOException {
+        if (entry.getMethod() == ZipArchiveEntry.STORED && !out.isSeekable()) {
+            // a stored entry in a non-seekable archive needs its size and CRC in the local header
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = source.openStream()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+            entry.setSize(size);
+            entry.setCrc(crc.getValue());
+        }
+        out.setLevel(compressionPolicy.getLevel(entry.getName().substring(rootPath.length())));
+        out.putArchiveEntry(entry);
+        try (InputStream in = source.openStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        out.closeArchiveEntry();
+        TextBundleListeners.get().entryWritten(entry.getName(), entry.getSize(), entry.getCompressedSize());
+    }
+
+    /**
+     * Copies already compressed entry data from another archive, without inflating it.
+     */
+    void writeRawEntry(String relativePath, ZipArchiveEntry source, InputStream rawData) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(reserveEntry(relativePath));
+        entry.setMethod(source.getMethod());
+        entry.setCrc(source.getCrc());
+        entry.setSize(source.getSize());
+        entry.setCompressedSize(source.getCompressedSize());
+        entry.setTime(source.getTime());
+        out.addRawArchiveEntry(entry, rawData);
+    }
+
+    /**
+     * Compresses the given entries concurrently on the executor and appends them to the archive in iteration order.
+     * Compressed data is staged in temporary files, at most {@code 4 * availableProcessors} entries at a time.
+     * The executor is not shut down.
+     */
+    void writeEntries(Map<String, ByteSource> sources, ExecutorService executor) throws IOException {
+        int window = Runtime.getRuntime().availableProcessors() * 4;
+        Deque<Future<ScatterZipOutputStream>> pending = new ArrayDeque<>();
+        Deque<ZipArchiveEntry> pendingEntries = new ArrayDeque<>();
+        Iterator<Map.Entry<String, ByteSource>> iterator = sources.entrySet().iterator();
+        try {
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                while (iterator.hasNext() && pending.size() < window) {
+                    Map.Entry<String, ByteSource> source = iterator.next();
+                    ZipArchiveEntry entry = createEntry(reserveEntry(source.getKey()), source.getValue());
+                    int level = compressionPolicy.getLevel(entry.getName().substring(rootPath.length()));
+                    pending.add(executor.submit(() -> compress(entry, level, source.getValue())));
+                    pendingEntries.add(entry);
+                }
+                try (ScatterZipOutputStream compressed = await(pending.poll())) {
+                    compressed.writeTo(out);
+                }
+                // sizes are set on the entry when it is written to the archive
+                ZipArchiveEntry written = pendingEntries.poll();
+                TextBundleListeners.get().entryWritten(written.getName(), written.getSize(), written.getCompressedSize());
+            }
+        } finally {
+            for (Future<ScatterZipOutputStream> future : pending) {
+                try {
+                    await(future).close();
+                } catch (IOException ignored) {
+                    // already failing, keep the original exception
+                }
+            }
+        }
+    }
+
+    private static ScatterZipOutputStream compress(ZipArchiveEntry entry, int level, ByteSource source) throws IOException {
+        Path tempFile = Files.createTempFile("textpack", ".tmp");
+        ScatterZipOutputStream compressed = ScatterZipOutputStream.pathBased(tempFile, level);
+        try {
+            compressed.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, () -> {
+                try {
+                    return source.openStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            return compressed;
+        } catch (IOException | RuntimeException e) {
+            compressed.close();
+            throw e;
+        }
+    }
+
+    private static ScatterZipOutputStream await(Future<ScatterZipOutputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing entries");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to compress entry", cause);
+        }
+    }
+
+    private String reserveEntry(String relativePath) throws IOException {
+        String name = entryName(relativePath);
+        if (entries.contains(name)) {
+            throw new IllegalStateException("Entry already written: " + name);
+        }
+        int parentEnd = name.lastIndexOf('/');
+        writeDirectory(name.substring(rootPath.length(), parentEnd + 1));
+        entries.add(name);
+        return name;
+    }
+
+    private ZipArchiveEntry createEntry(String name, ByteSource source) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        Path sourcePath = source.getPath();
+        entry.setTime(sourcePath != null ? Files.getLastModifiedTime(sourcePath).toMillis() : System.currentTimeMillis());
+        entry.setMethod(compressionPolicy.getMethod(name.substring(rootPath.length())));
+        return entry;
+    }
+
+    private String entryName(String relativePath) {
+        Path normalized = Paths.get(relativePath).normalize();
+        if (normalized.isAbsolute() || normalized.startsWith("..")) {
+            throw new IllegalStateException("Invalid entry path - expected to be in " + rootPath);
+        }
+        String name = normalized.toString().replace(File.separatorChar, '/');
+        return name.isEmpty() ? rootPath : rootPath + name;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!entries.contains(rootPath + "info.json")) {
+                writeMetaData(new MetaData());
+            }
+            out.finish();
+        } finally {
+            out.close();
+        }
+    }
+}
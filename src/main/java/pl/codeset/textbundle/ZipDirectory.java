@@ -0,0 +1,245 @@
+package pl.codeset.textbundle;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal reader and writer of a zip central directory, working on raw records. Used where parsing the directory
+ * into {@link org.apache.commons.compress.archivers.zip.ZipFile} entries would be wasteful and where records of
+ * untouched entries have to be written back byte for byte. Zip64 archives are not supported, {@link #read} returns
+ * {@code null} for them.
+ */
+final class ZipDirectory {
+
+    static final long MAX_OFFSET = 0xFFFFFFFFL;
+    static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CFH_SIGNATURE = 0x02014b50;
+    private static final int LFH_SIGNATURE = 0x04034b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int CFH_SIZE = 46;
+    private static final int LFH_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private final long offset;
+    private final long size;
+    private final List<Record> records;
+
+    private ZipDirectory(long offset, long size, List<Record> records) {
+        this.offset = offset;
+        this.size = size;
+        this.records = records;
+    }
+
+    /**
+     * Reads central directory of the archive stored in channel between base and end.
+     * Offsets of the directory and of records are relative to base. Lengths read from the archive are checked
+     * against the directory bounds, a truncated or malformed directory fails with {@link ZipException}.
+     */
+    static ZipDirectory read(FileChannel channel, long base, long end) throws IOException {
+        int tailSize = (int) Math.min(end - base, EOCD_SIZE + MAX_COMMENT_SIZE + ZIP64_LOCATOR_SIZE);
+        ByteBuffer tail = readFully(channel, end - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE && i + EOCD_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tailSize) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+        if (eocd >= ZIP64_LOCATOR_SIZE && tail.getInt(eocd - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+            return null;
+        }
+        int entries = tail.getShort(eocd + 10) & 0xFFFF;
+        long size = tail.getInt(eocd + 12) & MAX_OFFSET;
+        long offset = tail.getInt(eocd + 16) & MAX_OFFSET;
+        if (entries == MAX_ENTRIES || size == MAX_OFFSET || offset == MAX_OFFSET) {
+            return null;
+        }
+        if (base + offset + size > end || size > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory out of archive bounds");
+        }
+
+        ByteBuffer directory = readFully(channel, base + offset, (int) size);
+        List<Record> records = new ArrayList<>(entries);
+        int position = 0;
+        while (position < size) {
+            if (position + CFH_SIZE > size || directory.getInt(position) != CFH_SIGNATURE) {
+                throw new ZipException("Invalid central directory record at " + (offset + position));
+            }
+            int recordSize = CFH_SIZE + (directory.getShort(position + 28) & 0xFFFF)
+                    + (directory.getShort(position + 30) & 0xFFFF) + (directory.getShort(position + 32) & 0xFFFF);
+            if (position + recordSize > size) {
+                throw new ZipException("Central directory record out of bounds at " + (offset + position));
+            }
+            byte[] raw = new byte[recordSize];
+            directory.position(position);
+            directory.get(raw);
+            Record record = new Record(raw);
+            if (record.getLocalHeaderOffset() == MAX_OFFSET || record.getCompressedSize() == MAX_OFFSET) {
+                return null;
+            }
+            records.add(record);
+            position += recordSize;
+        }
+        return new ZipDirectory(offset, size, records);
+    }
+
+    /**
+     * Writes central directory made of given records followed by the end of central directory record.
+     */
+    static void write(FileChannel channel, long position, List<Record> records) throws IOException {
+        int size = 0;
+        for (Record record : records) {
+            size += record.raw.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + EOCD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (Record record : records) {
+            buffer.put(record.raw);
+        }
+        buffer.putInt(EOCD_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) records.size())
+                .putShort((short) records.size())
+                .putInt(size)
+                .putInt((int) position)
+                .putShort((short) 0);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        channel.truncate(position + size + EOCD_SIZE);
+    }
+
+    /**
+     * @return absolute position of the entry data, just after its local file header
+     */
+    static long dataPosition(FileChannel channel, long base, Record record) throws IOException {
+        long headerPosition = base + record.getLocalHeaderOffset();
+        ByteBuffer header = readFully(channel, headerPosition, LFH_SIZE);
+        if (header.getInt(0) != LFH_SIGNATURE) {
+            throw new ZipException("Invalid local file header of " + record.getName());
+        }
+        return headerPosition + LFH_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    Record getRecord(String name) {
+        for (Record record : records) {
+            if (record.getName().equals(name)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return prefix of bundle entries, same rules as {@link TextPackReader}: empty when {@code info.json} is in
+     * the archive root, otherwise the first {@code *.textbundle/} folder
+     */
+    String findRootPath() {
+        if (getRecord("info.json") != null) {
+            return "";
+        }
+        for (Record record : records) {
+            String name = record.getName();
+            int slash = name.indexOf('/');
+            if (slash > 0 && name.substring(0, slash).toLowerCase().endsWith(".textbundle")) {
+                return name.substring(0, slash + 1);
+            }
+        }
+        return "";
+    }
+
+    static final class Record {
+
+        private final byte[] raw;
+        private final ByteBuffer fields;
+        private final String name;
+
+        Record(byte[] raw) {
+            this.raw = raw;
+            this.fields = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            this.name = new String(raw, CFH_SIZE, fields.getShort(28) & 0xFFFF, StandardCharsets.UTF_8);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        int getMethod() {
+            return fields.getShort(10) & 0xFFFF;
+        }
+
+        long getCrc() {
+            return fields.getInt(16) & MAX_OFFSET;
+        }
+
+        long getCompressedSize() {
+            return fields.getInt(20) & MAX_OFFSET;
+        }
+
+        long getSize() {
+            return fields.getInt(24) & MAX_OFFSET;
+        }
+
+        long getLocalHeaderOffset() {
+            return fields.getInt(42) & MAX_OFFSET;
+        }
+
+        /**
+         * @return approximate number of bytes taken by the entry in the archive body
+         */
+        long getStoredSize() {
+            boolean dataDescriptor = (fields.getShort(8) & 0x08) != 0;
+            return LFH_SIZE + (fields.getShort(28) & 0xFFFF) + (fields.getShort(30) & 0xFFFF)
+                    + getCompressedSize() + (dataDescriptor ? 16 : 0);
+        }
+
+        Record withLocalHeaderOffset(long localHeaderOffset) {
+            byte[] copy = raw.clone();
+            ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(42, (int) localHeaderOffset);
+            return new Record(copy);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssetReferencesTest {
+
+    @Test
+    void shouldFindLinkedAssets() throws IOException {
+        // Given
+        String markdown = "# Title\n" +
+                "![image](assets/image.png \"Title\") and [file](<assets/my file.pdf>)\n" +
+                "[ref]: ./assets/ref.jpg\n" +
+                "<img src=\"assets/html.gif\" alt=\"\"> <a HREF='assets/link.txt#top'>link</a>\n" +
+                "[encoded](assets/a%20b.png) [external](https://example.com/assets/remote.png)\n" +
+                "Plain text mentioning assets/prose.png is not a reference.\n";
+
+        // When
+        Set<String> references = AssetReferences.scan(new TextContent(ContentType.MARKDOWN, markdown));
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList(
+                "assets/image.png",
+                "assets/my file.pdf",
+                "assets/ref.jpg",
+                "assets/html.gif",
+                "assets/link.txt",
+                "assets/a b.png"
+        )), references);
+    }
+
+    @Test
+    void shouldFindTargetsWithParentheses() throws IOException {
+        // Given
+        String markdown = "![shot](assets/image (1).png) is not a target, but these are:\n" +
+                "![shot](assets/screen(1).png \"Title\") and (see [file](assets/file_(v2).pdf))\n" +
+                "![encoded](assets/image%20(2).png)\n" +
+                "![bracketed](<assets/image (3).png>)\n" +
+                "![escaped](assets/image\\(4.png)\n";
+
+        // When
+        Set<String> references = AssetReferences.scan(new TextContent(ContentType.MARKDOWN, markdown));
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList(
+                "assets/image",
+                "assets/screen(1).png",
+                "assets/file_(v2).pdf",
+                "assets/image (2).png",
+                "assets/image (3).png",
+                "assets/image(4.png"
+        )), references);
+    }
+
+    @Test
+    void shouldFindLinkTargetOnNextLine() throws IOException {
+        // Given
+        String markdown = "See [the image](\n" +
+                "  assets/next-line.png \"Title\") and ![a](\n" +
+                "\n" +
+                "assets/after-blank-line.png)\n";
+
+        // When
+        Set<String> references = AssetReferences.scan(new TextContent(ContentType.MARKDOWN, markdown));
+
+        // Then
+        assertEquals(Collections.singleton("assets/next-line.png"), references);
+    }
+
+    @Test
+    void shouldFindDefinitionTargetOnNextLine() throws IOException {
+        // Given
+        String markdown = "![image][ref]\n" +
+                "\n" +
+                "[ref]:\n" +
+                "   <assets/next line.png>\n";
+
+        // When
+        Set<String> references = AssetReferences.scan(new TextContent(ContentType.MARKDOWN, markdown));
+
+        // Then
+        assertEquals(Collections.singleton("assets/next line.png"), references);
+    }
+
+    @Test
+    void shouldKeepAssetLinkedAcrossLinesOnOptimize(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("my.textbundle"))) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "[a](\nassets/x.png)\n[b]:\nassets/y.png\n"));
+            dir.writeAsset(new Asset("x.png", new byte[]{1}));
+            dir.writeAsset(new Asset("y.png", new byte[]{2}));
+            dir.writeAsset(new Asset("unused.png", new byte[]{3}));
+
+            // When
+            dir.optimize();
+
+            // Then
+            assertEquals(new HashSet<>(Arrays.asList("assets/x.png", "assets/y.png")), dir.readAssets().stream()
+                    .map(asset -> asset.getPath().replace('\\', '/'))
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void shouldKeepAssetWithParenthesesOnOptimize(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("my.textbundle"))) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "![shot](assets/image%20(1).png)"));
+            dir.writeAsset(new Asset("image (1).png", new byte[]{1}));
+            dir.writeAsset(new Asset("unused.png", new byte[]{2}));
+
+            // When
+            dir.optimize();
+
+            // Then
+            assertEquals(Collections.singleton("assets/image (1).png"), dir.readAssets().stream()
+                    .map(asset -> asset.getPath().replace('\\', '/'))
+                    .collect(Collectors.toSet()));
+        }
+    }
+}
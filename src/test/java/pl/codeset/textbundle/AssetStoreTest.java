@@ -0,0 +1,37 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AssetStoreTest {
+
+    @Test
+    void shouldNotWriteDuplicateContent(@TempDir Path tempDir) throws IOException {
+        // Given
+        byte[] content = "raw-content".getBytes(StandardCharsets.UTF_8);
+        Path source = Files.write(tempDir.resolve("source.raw"), content);
+        AssetStore store = new AssetStore(tempDir.resolve("store"));
+        String hash = store.put(new Asset("first.raw", source));
+        // any write to the store would need its temporary directory
+        Files.delete(store.getRoot().resolve("tmp"));
+
+        // When
+        String fromFile = store.put(new Asset("second.raw", Files.write(tempDir.resolve("copy.raw"), content)));
+        String fromBytes = store.put(new Asset("third.raw", content));
+
+        // Then
+        assertEquals(hash, fromFile);
+        assertEquals(hash, fromBytes);
+        assertArrayEquals(content, Files.readAllBytes(store.getBlob(hash)));
+        assertThrows(IOException.class, () -> store.put(new Asset("new.raw", new byte[]{1})));
+    }
+}
@@ -0,0 +1,168 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncTextBundleTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldReadAndWriteBundleDir(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textbundle");
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("test");
+        try (TextBundleDir bundle = new TextBundleDir(path)) {
+            bundle.writeMetaData(metaData);
+            bundle.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+
+        // When
+        try (AsyncTextBundle bundle = AsyncTextBundle.open(path, executor)) {
+            bundle.writeAsset(new Asset("test.raw", "raw-content".getBytes(StandardCharsets.UTF_8))).get();
+
+            // Then
+            assertEquals(metaData, bundle.readMetaData().get());
+            assertEquals("Sample MD", bundle.readContent().get().getContentAsString());
+            Set<Asset> assets = bundle.readAssets().get();
+            assertEquals(1, assets.size());
+            assertArrayEquals("raw-content".getBytes(StandardCharsets.UTF_8), assets.iterator().next().readContent());
+        }
+        assertTrue(Files.exists(path.resolve("assets/test.raw")));
+    }
+
+    @Test
+    void shouldReadAndWriteTextPack(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPack pack = new TextPack(path)) {
+            pack.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+
+        // When
+        try (AsyncTextBundle bundle = AsyncTextBundle.open(path, executor)) {
+            bundle.writeAsset(new Asset("test.raw", "raw-content".getBytes(StandardCharsets.UTF_8))).get();
+
+            // Then
+            assertEquals("Sample MD", bundle.readContent().get().getContentAsString());
+            assertEquals(1, bundle.readAssets().get().size());
+        }
+    }
+
+    @Test
+    void shouldReadAssetChunkAtPosition(@TempDir Path tempDir) throws Exception {
+        for (Path path : new Path[]{tempDir.resolve("my.textbundle"), tempDir.resolve("my.textpack")}) {
+            // Given
+            try (TextBundle bundle = path.toString().endsWith(".textpack") ? new TextPack(path) : new TextBundleDir(path)) {
+                bundle.writeAsset(new Asset("test.raw", "0123456789".getBytes(StandardCharsets.UTF_8)));
+            }
+
+            // When
+            ByteBuffer buffer = ByteBuffer.allocate(3);
+            int read;
+            try (AsyncTextBundle bundle = AsyncTextBundle.open(path, executor)) {
+                Asset asset = bundle.readAssets().get().iterator().next();
+                read = bundle.readAsset(asset, 5, buffer).get();
+            }
+
+            // Then
+            assertEquals(3, read);
+            assertEquals("567", new String(buffer.array(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void shouldTransferAssetInChunks(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[100_000];
+        new Random(1).nextBytes(content);
+        for (Path path : new Path[]{tempDir.resolve("my.textbundle"), tempDir.resolve("my.textpack")}) {
+            // Given
+            try (TextBundle bundle = path.toString().endsWith(".textpack") ? new TextPack(path) : new TextBundleDir(path)) {
+                bundle.writeAsset(new Asset("test.raw", content));
+            }
+
+            // When
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            long transferred;
+            try (AsyncTextBundle bundle = AsyncTextBundle.open(path, executor)) {
+                Asset asset = bundle.readAssets().get().iterator().next();
+                transferred = bundle.transferAsset(asset, 1024, chunk -> {
+                    received.write(chunk.array(), chunk.position(), chunk.remaining());
+                    return CompletableFuture.completedFuture(null);
+                }).get();
+            }
+
+            // Then
+            assertEquals(content.length, transferred);
+            assertArrayEquals(content, received.toByteArray());
+        }
+    }
+
+    @Test
+    void shouldWriteAssetWithoutFileInChunks(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textbundle");
+        byte[] content = new byte[200_000];
+        new Random(2).nextBytes(content);
+        Path pack = tempDir.resolve("source.textpack");
+        try (TextPack source = new TextPack(pack)) {
+            source.writeAsset(new Asset("test.raw", content));
+        }
+
+        // When
+        try (TextPackReader reader = new TextPackReader(pack);
+             AsyncTextBundle bundle = AsyncTextBundle.of(new TextBundleDir(path), executor)) {
+            bundle.writeAsset(reader.readAssets().iterator().next()).get();
+        }
+
+        // Then
+        assertArrayEquals(content, Files.readAllBytes(path.resolve("assets/test.raw")));
+    }
+
+    @Test
+    void shouldFailWhenAssetIsMissing(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textbundle");
+        Files.createDirectories(path);
+
+        // When
+        try (AsyncTextBundle bundle = AsyncTextBundle.open(path, executor)) {
+            CompletableFuture<Integer> read = bundle.readAsset(new Asset("missing.raw", new byte[0]), 0, ByteBuffer.allocate(1));
+
+            // Then
+            ExecutionException error = assertThrows(ExecutionException.class, read::get);
+            assertTrue(error.getCause() instanceof IOException);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package pl.codeset.textbundle;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MetaDataCodecTest {
+
+    @Test
+    void shouldWriteSameJsonAsGson() {
+        // Given
+        MetaData metaData = new MetaData();
+        metaData.setType("net.daringfireball.markdown");
+        metaData.setTransient(true);
+        metaData.setCreatorIdentifier("<test>");
+        metaData.setApplicationContent(Collections.singletonMap("key", "value"));
+
+        // When
+        String json = new String(MetaDataCodec.toBytes(metaData), StandardCharsets.UTF_8);
+
+        // Then
+        assertEquals("{\"version\":2,\"type\":\"net.daringfireball.markdown\",\"transient\":true,"
+                + "\"creatorIdentifier\":\"\\u003ctest\\u003e\",\"applicationContent\":{\"key\":\"value\"}}", json);
+        assertEquals(json, new Gson().toJson(metaData));
+    }
+
+    @Test
+    void shouldReadMetaData() throws IOException {
+        // Given
+        String json = "{\"version\":2,\"transient\":\"true\",\"sourceURL\":\"http://example.com\",\"unknown\":[1,2],"
+                + "\"applicationContent\":{\"count\":1,\"nested\":{\"a\":\"b\"}}}";
+
+        // When
+        MetaData metaData = MetaDataCodec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        Map<String, Object> applicationContent = new HashMap<>();
+        applicationContent.put("count", 1.0);
+        applicationContent.put("nested", Collections.singletonMap("a", "b"));
+        assertEquals(2, metaData.getVersion());
+        assertEquals(true, metaData.getTransient());
+        assertEquals("http://example.com", metaData.getSourceURL());
+        assertNull(metaData.getCreatorURL());
+        assertEquals(applicationContent, metaData.getApplicationContent());
+    }
+
+    @Test
+    void shouldKeepApplicationContentWhenRewritten() throws IOException {
+        // Given
+        String json = "{\"version\":2,\"applicationContent\":{\"list\":[1,\"a\"]}}";
+
+        // When
+        MetaData metaData = MetaDataCodec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertEquals(json, new String(MetaDataCodec.toBytes(metaData), StandardCharsets.UTF_8));
+    }
+}
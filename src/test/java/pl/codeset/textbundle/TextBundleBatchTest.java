@@ -0,0 +1,98 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextBundleBatchTest {
+
+    @Test
+    void shouldPackAndUnpackAllBundles(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path sourceRoot = tempDir.resolve("source");
+        for (int i = 0; i < 5; i++) {
+            try (TextBundleDir dir = new TextBundleDir(sourceRoot.resolve("group" + (i % 2)).resolve("note" + i + ".textbundle"))) {
+                dir.writeContent(new TextContent(ContentType.MARKDOWN, "Note " + i));
+                dir.writeAsset(new Asset("test.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+
+        // When
+        BatchResult packed;
+        BatchResult unpacked;
+        try (TextBundleBatch batch = new TextBundleBatch(2)) {
+            packed = batch.packAll(sourceRoot, tempDir.resolve("packed"));
+            unpacked = batch.unpackAll(tempDir.resolve("packed"), tempDir.resolve("unpacked"));
+        }
+
+        // Then
+        assertTrue(packed.isSuccess());
+        assertEquals(5, packed.getItems().size());
+        assertTrue(Files.exists(tempDir.resolve("packed/group1/note3.textpack")));
+        assertTrue(unpacked.isSuccess());
+        assertEquals(5, unpacked.getItems().size());
+        try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("unpacked/group1/note3.textbundle"))) {
+            assertEquals("Note 3", dir.readContent().getContentAsString());
+        }
+    }
+
+    @Test
+    void shouldReportFailedItems(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path broken = Files.write(tempDir.resolve("broken.textpack"), "not a zip".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        BatchResult result;
+        try (TextBundleBatch batch = new TextBundleBatch(2)) {
+            result = batch.unpackAll(tempDir, tempDir.resolve("unpacked"));
+        }
+
+        // Then
+        assertFalse(result.isSuccess());
+        assertEquals(broken, result.getFailed().get(0).getSource());
+    }
+
+    @Test
+    void shouldOptimizeAllBundles(@TempDir Path tempDir) throws IOException {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("note" + i + ".textbundle"))) {
+                dir.writeContent(new TextContent(ContentType.MARKDOWN, "![used](assets/used.png) unused.png"));
+                dir.writeAsset(new Asset("used.png", "used".getBytes(StandardCharsets.UTF_8)));
+                dir.writeAsset(new Asset("unused.png", "unused".getBytes(StandardCharsets.UTF_8)));
+            }
+            try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("note" + i + ".textbundle"))) {
+                dir.packTo(tempDir.resolve("note" + i + ".textpack"));
+            }
+        }
+
+        // When
+        BatchResult dryRun;
+        BatchResult optimized;
+        try (TextBundleBatch batch = new TextBundleBatch(2)) {
+            dryRun = batch.optimizeAll(tempDir, true);
+            optimized = batch.optimizeAll(tempDir, false);
+        }
+
+        // Then
+        assertTrue(dryRun.isSuccess());
+        assertEquals(6, dryRun.getItems().size());
+        assertEquals(6 * "unused".length(), dryRun.getBytes());
+        assertEquals(6, optimized.getItems().size());
+        assertEquals(1, optimized.getItems().get(0).getUnreferencedAssets().size());
+        assertFalse(Files.exists(tempDir.resolve("note0.textbundle/assets/unused.png")));
+        assertTrue(Files.exists(tempDir.resolve("note0.textbundle/assets/used.png")));
+        try (TextPack pack = new TextPack(tempDir.resolve("note2.textpack"))) {
+            assertEquals(1, pack.readAssets().size());
+            assertTrue(pack.optimize(true).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextBundleCacheTest {
+
+    @Test
+    void shouldReuseOpenReader(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = createPack(tempDir.resolve("my.textpack"), "Sample MD");
+
+        // When
+        try (TextBundleCache cache = new TextBundleCache(10)) {
+            TextPackReader first;
+            try (TextBundleCache.Lease lease = cache.acquire(path)) {
+                first = lease.getReader();
+                assertEquals("Sample MD", first.readContent().getContentAsString());
+            }
+            try (TextBundleCache.Lease lease = cache.acquire(path)) {
+                // Then
+                assertSame(first, lease.getReader());
+            }
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void shouldReopenChangedPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = createPack(tempDir.resolve("my.textpack"), "Sample MD");
+
+        try (TextBundleCache cache = new TextBundleCache(10)) {
+            TextPackReader first;
+            try (TextBundleCache.Lease lease = cache.acquire(path)) {
+                first = lease.getReader();
+            }
+
+            // When
+            createPack(path, "Updated MD");
+            Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 2000));
+
+            // Then
+            try (TextBundleCache.Lease lease = cache.acquire(path)) {
+                assertNotSame(first, lease.getReader());
+                assertEquals("Updated MD", lease.getReader().readContent().getContentAsString());
+            }
+            assertEquals(1, cache.getInvalidationCount());
+            assertEquals(2, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path first = createPack(tempDir.resolve("first.textpack"), "1");
+        Path second = createPack(tempDir.resolve("second.textpack"), "2");
+        Path third = createPack(tempDir.resolve("third.textpack"), "3");
+
+        try (TextBundleCache cache = new TextBundleCache(2)) {
+            // When
+            TextBundleCache.Lease leased = cache.acquire(first);
+            cache.acquire(second).close();
+            cache.acquire(third).close();
+
+            // Then
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictionCount());
+            // evicted reader stays usable until released
+            assertEquals("1", leased.getReader().readContent().getContentAsString());
+            leased.close();
+            assertThrows(IOException.class, () -> leased.getReader().readMetaData());
+
+            cache.acquire(third).close();
+            assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    @Test
+    void shouldEvictIdleReaders(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = createPack(tempDir.resolve("my.textpack"), "Sample MD");
+
+        try (TextBundleCache cache = new TextBundleCache(10)) {
+            cache.acquire(path).close();
+
+            // When
+            cache.setMaxIdleTime(Duration.ZERO);
+
+            // Then
+            assertEquals(0, cache.size());
+            assertEquals(1, cache.getEvictionCount());
+        }
+    }
+
+    @Test
+    void shouldShareReaderBetweenThreads(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        Random random = new Random(4);
+        Map<String, byte[]> assets = new HashMap<>();
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 30; i++) {
+                byte[] content = new byte[1000 + random.nextInt(3000)];
+                random.nextBytes(content);
+                String name = "asset" + i + (i % 2 == 0 ? ".png" : ".txt");
+                assets.put(name, content);
+                writer.writeAsset(new Asset(name, content));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (TextBundleCache cache = new TextBundleCache(10)) {
+            for (int round = 0; round < 50; round++) {
+                // When
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<TextPackReader>> results = new ArrayList<>();
+                for (int thread = 0; thread < 8; thread++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        try (TextBundleCache.Lease lease = cache.acquire(path)) {
+                            for (Map.Entry<String, byte[]> asset : assets.entrySet()) {
+                                // Then
+                                assertArrayEquals(asset.getValue(),
+                                        lease.getReader().readAsset(asset.getKey()).get().readContent(), asset.getKey());
+                            }
+                            return lease.getReader();
+                        }
+                    }));
+                }
+                start.countDown();
+                Set<TextPackReader> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Future<TextPackReader> result : results) {
+                    shared.add(result.get());
+                }
+                assertEquals(1, shared.size());
+                // next round starts with a reader that has no entry resolved
+                cache.invalidate(path);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Path createPack(Path path, String content) throws IOException {
+        Files.deleteIfExists(path);
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, content));
+        }
+        return path;
+    }
+}
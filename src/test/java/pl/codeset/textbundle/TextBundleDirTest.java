@@ -3,14 +3,22 @@ package pl.codeset.textbundle;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TextBundleDirTest {
@@ -97,6 +105,33 @@ class TextBundleDirTest {
         assertEquals(contentToWrite, readContent);
     }
 
+    @Test
+    void shouldFailToReadContentRewrittenSinceRead(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "First content"));
+        }
+
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            TextContent lazy = dir.readContent();
+            TextContent loaded = dir.readContent();
+            loaded.getContent();
+
+            // When
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Other content"));
+            TextContent committed = dir.readContent();
+            dir.edit().writeContent(new TextContent(ContentType.MARKDOWN, "Third content")).commit();
+
+            // Then
+            assertThrows(IOException.class, lazy::openReader);
+            assertThrows(UncheckedIOException.class, lazy::getContentAsString);
+            assertThrows(IOException.class, committed::openReader);
+            assertEquals("First content", loaded.getContentAsString());
+            assertEquals("Third content", dir.readContent().getContentAsString());
+        }
+    }
+
     @Test
     void shouldUpdateAssetWhenExists(@TempDir Path tempDir) throws IOException {
         // Given
@@ -162,6 +197,179 @@ class TextBundleDirTest {
             dir.packTo(textPack);
         }
 
+        // Then
         assertTrue(Files.exists(textPack));
+        try (TextPack file = new TextPack(textPack)) {
+            assertEquals("Sample MD", file.readContent().getContentAsString());
+            assertEquals(2, file.readAssets().size());
+        }
+    }
+
+    @Test
+    void shouldWriteAssetFromFile(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        byte[] contentToWrite = "Sample-asset-from-file".getBytes(StandardCharsets.UTF_8);
+        Path sourceFile = Files.write(tempDir.resolve("source.bin"), contentToWrite);
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeAsset(new Asset("test.file", sourceFile));
+        }
+
+        ByteArrayOutputStream readContent = new ByteArrayOutputStream();
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.readAssets().iterator().next().writeTo(readContent);
+        }
+
+        // Then
+        assertArrayEquals(contentToWrite, readContent.toByteArray());
+    }
+
+    @Test
+    void shouldLinkAssetFromFile(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        Path sourceFile = Files.write(tempDir.resolve("source.bin"), "Linked-asset".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(path).setAssetCopyMode(AssetCopyMode.HARD_LINK)) {
+            dir.writeAsset(new Asset("test.file", sourceFile));
+        }
+
+        // Then
+        assertTrue(Files.isSameFile(sourceFile, path.resolve("assets/test.file")));
+    }
+
+    @Test
+    void shouldConvertToTextPackInParallel(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 20; i++) {
+                dir.writeAsset(new Asset("test" + i + ".raw", ("raw-content" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+
+        // When
+        Path textPack = tempDir.resolve("sample.textpack");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.packTo(textPack, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        try (TextPackReader reader = new TextPackReader(textPack)) {
+            assertEquals("Sample MD", reader.readContent().getContentAsString());
+            assertEquals(20, reader.readAssets().size());
+            assertArrayEquals("raw-content7".getBytes(StandardCharsets.UTF_8),
+                    reader.readAsset("test7.raw").get().readContent());
+        }
+    }
+
+    @Test
+    void shouldDeduplicateAssetsThroughStore(@TempDir Path tempDir) throws IOException {
+        // Given
+        AssetStore store = new AssetStore(tempDir.resolve("store"));
+        byte[] logo = "logo".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        try (TextBundleDir first = new TextBundleDir(tempDir.resolve("first.bundle")).setAssetStore(store);
+             TextBundleDir second = new TextBundleDir(tempDir.resolve("second.bundle")).setAssetStore(store)) {
+            first.writeAsset(new Asset("logo.png", logo));
+            second.writeAsset(new Asset("logo.png", logo));
+            second.writeAsset(new Asset("logo.png", "new-logo".getBytes(StandardCharsets.UTF_8)));
+            first.writeAsset(new Asset("copy.png", first.getPath().resolve("assets/logo.png")));
+        }
+
+        // Then
+        Path firstLogo = tempDir.resolve("first.bundle/assets/logo.png");
+        assertTrue(Files.isSameFile(firstLogo, tempDir.resolve("first.bundle/assets/copy.png")));
+        assertArrayEquals(logo, Files.readAllBytes(firstLogo));
+        assertArrayEquals("new-logo".getBytes(StandardCharsets.UTF_8),
+                Files.readAllBytes(tempDir.resolve("second.bundle/assets/logo.png")));
+    }
+
+    @Test
+    void shouldMapContentAndAssets(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            dir.writeAsset(new Asset("test1.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        ByteBuffer content;
+        ByteBuffer asset;
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            content = dir.readContent().asByteBuffer();
+            asset = dir.readAssets().iterator().next().asByteBuffer();
+        }
+
+        // Then
+        assertTrue(content.isDirect());
+        assertTrue(content.isReadOnly());
+        assertEquals("Sample MD", StandardCharsets.UTF_8.decode(content).toString());
+        assertTrue(asset.isDirect());
+        assertEquals("raw-content", StandardCharsets.UTF_8.decode(asset).toString());
+    }
+
+    @Test
+    void shouldFindContentInBundleRootOnly(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeAsset(new Asset("text.png", "not-a-content".getBytes(StandardCharsets.UTF_8)));
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+
+        // When
+        String content;
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            content = dir.readContent().getContentAsString();
+        }
+
+        // Then
+        assertEquals("Sample MD", content);
+    }
+
+    @Test
+    void shouldCommitEditAtOnce(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.bundle");
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("test");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            dir.writeAsset(new Asset("kept.raw", "kept".getBytes(StandardCharsets.UTF_8)));
+            dir.writeAsset(new Asset("removed.raw", "removed".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            TextBundleEdit edit = dir.edit()
+                    .writeMetaData(metaData)
+                    .writeContent(new TextContent(ContentType.MARKDOWN, "Updated MD"))
+                    .writeAsset(new Asset("added.raw", "added".getBytes(StandardCharsets.UTF_8)))
+                    .removeAsset(new Asset("removed.raw", new byte[0]));
+            assertEquals("Sample MD", dir.readContent().getContentAsString());
+            edit.commit();
+        }
+
+        // Then
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            assertEquals(metaData, dir.readMetaData());
+            assertEquals("Updated MD", dir.readContent().getContentAsString());
+            assertEquals(2, dir.readAssets().size());
+        }
+        assertArrayEquals("kept".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path.resolve("assets/kept.raw")));
+        assertFalse(Files.exists(path.resolve("assets/removed.raw")));
+        try (Stream<Path> siblings = Files.list(tempDir)) {
+            assertEquals(1, siblings.count());
+        }
     }
-}
\ No newline at end of file
+}
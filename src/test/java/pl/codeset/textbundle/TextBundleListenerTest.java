@@ -0,0 +1,107 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.codeset.textbundle.TextBundleListener.Operation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextBundleListenerTest {
+
+    private final AggregatingTextBundleListener metrics = new AggregatingTextBundleListener();
+
+    @AfterEach
+    void clearListeners() {
+        TextBundleListeners.clear();
+    }
+
+    @Test
+    void shouldReportBundleDirOperations(@TempDir Path tempDir) throws IOException {
+        // Given
+        TextBundleListeners.register(metrics);
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("my.textbundle"))) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "![](assets/a.txt)"));
+            dir.writeAsset(new Asset("a.txt", new byte[100]));
+            dir.readContent();
+            dir.packTo(tempDir.resolve("my.textpack"));
+        }
+
+        // Then
+        assertEquals(1, metrics.getCount(Operation.WRITE_CONTENT));
+        assertEquals(1, metrics.getCount(Operation.WRITE_ASSET));
+        assertEquals(100, metrics.getBytes(Operation.WRITE_ASSET));
+        assertEquals(1, metrics.getCount(Operation.READ_CONTENT));
+        assertEquals(1, metrics.getCount(Operation.PACK));
+        assertTrue(metrics.getBytes(Operation.PACK) > 0);
+        assertEquals(3, metrics.getEntriesWritten());
+        assertTrue(metrics.getCompressionRatio() < 1);
+        assertTrue(metrics.getLatencyPercentile(Operation.PACK, 0.99).compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void shouldReportTextPackMountAndFailures(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path file = Files.createFile(tempDir.resolve("file"));
+        TextBundleListeners.register(metrics);
+
+        // When
+        try (TextPack pack = new TextPack(tempDir.resolve("my.textpack"))) {
+            pack.writeMetaData(new MetaData());
+            assertThrows(IOException.class, () -> pack.unpackTo(file.resolve("unpacked")));
+        }
+
+        // Then
+        assertEquals(1, metrics.getPackOpenCount());
+        assertEquals(1, metrics.getCount(Operation.WRITE_METADATA));
+        assertEquals(0, metrics.getFailureCount(Operation.WRITE_METADATA));
+        assertEquals(1, metrics.getFailureCount(Operation.UNPACK));
+    }
+
+    @Test
+    void shouldReportCacheHitsToAllListeners(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+        AggregatingTextBundleListener other = new AggregatingTextBundleListener();
+        TextBundleListeners.register(metrics);
+        TextBundleListeners.register(other);
+
+        // When
+        try (TextBundleCache cache = new TextBundleCache(10)) {
+            cache.acquire(path).close();
+            cache.acquire(path).close();
+        }
+
+        // Then
+        assertEquals(1, metrics.getCacheMissCount());
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(1, other.getCacheHitCount());
+    }
+
+    @Test
+    void shouldNotReportWhenUnregistered(@TempDir Path tempDir) throws IOException {
+        // Given
+        TextBundleListeners.register(metrics);
+        TextBundleListeners.unregister(metrics);
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(tempDir.resolve("my.textbundle"))) {
+            dir.writeMetaData(new MetaData());
+        }
+
+        // Then
+        assertEquals(0, metrics.getCount(Operation.WRITE_METADATA));
+    }
+}
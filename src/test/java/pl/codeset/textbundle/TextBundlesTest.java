@@ -0,0 +1,109 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextBundlesTest {
+
+    @Test
+    void shouldPeekMetaDataOfDirAndPacks(@TempDir Path tempDir) throws IOException {
+        // Given
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("test");
+        Path dirPath = tempDir.resolve("my.textbundle");
+        try (TextBundleDir dir = new TextBundleDir(dirPath)) {
+            dir.writeMetaData(metaData);
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+        Path packed = tempDir.resolve("packed.textpack");
+        try (TextBundleDir dir = new TextBundleDir(dirPath)) {
+            dir.packTo(packed);
+        }
+        Path zipfsPack = tempDir.resolve("zipfs.textpack");
+        try (TextPack file = new TextPack(zipfsPack)) {
+            file.writeMetaData(metaData);
+        }
+
+        // When
+        Map<Path, MetaData> scanned = TextBundles.scanMetaData(Stream.of(dirPath, packed, zipfsPack));
+
+        // Then
+        assertEquals(3, scanned.size());
+        assertEquals(metaData, scanned.get(dirPath));
+        assertEquals(metaData, scanned.get(packed));
+        assertEquals(metaData, scanned.get(zipfsPack));
+    }
+
+    @Test
+    void shouldPeekMetaDataStoredAfterAssets(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("late.textpack");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(path)) {
+            for (int i = 0; i < 20; i++) {
+                out.putArchiveEntry(new ZipArchiveEntry("late.textbundle/assets/" + i + ".raw"));
+                out.write("raw-content".getBytes(StandardCharsets.UTF_8));
+                out.closeArchiveEntry();
+            }
+            out.putArchiveEntry(new ZipArchiveEntry("late.textbundle/info.json"));
+            out.write("{\"version\":2,\"creatorIdentifier\":\"late\"}".getBytes(StandardCharsets.UTF_8));
+            out.closeArchiveEntry();
+        }
+
+        // When
+        MetaData metaData = TextBundles.peekMetaData(path);
+
+        // Then
+        assertEquals("late", metaData.getCreatorIdentifier());
+    }
+
+    @Test
+    void shouldRejectTruncatedCentralDirectory(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path source = tempDir.resolve("source.textpack");
+        try (TextPackWriter writer = new TextPackWriter(source)) {
+            writer.writeMetaData(new MetaData());
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+        byte[] bytes = Files.readAllBytes(source);
+        ByteBuffer eocd = ByteBuffer.wrap(Arrays.copyOfRange(bytes, bytes.length - 22, bytes.length))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int directoryOffset = eocd.getInt(16);
+        // directory cut in the middle of the first record, end record updated to match
+        Path truncated = tempDir.resolve("truncated.textpack");
+        eocd.putInt(12, 10);
+        try (OutputStream out = Files.newOutputStream(truncated)) {
+            out.write(bytes, 0, directoryOffset + 10);
+            out.write(eocd.array());
+        }
+        // name length of the first record pointing past the directory
+        Path malformed = tempDir.resolve("malformed.textpack");
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putShort(directoryOffset + 28, (short) 0xFFFF);
+        Files.write(malformed, bytes);
+
+        // When / Then
+        assertThrows(ZipException.class, () -> TextBundles.peekMetaData(truncated));
+        assertThrows(ZipException.class, () -> TextBundles.peekMetaData(malformed));
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class,
+                () -> TextBundles.scanMetaData(Stream.of(truncated)));
+        assertInstanceOf(ZipException.class, exception.getCause());
+    }
+}
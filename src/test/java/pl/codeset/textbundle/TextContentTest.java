@@ -0,0 +1,75 @@
+package pl.codeset.textbundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextContentTest {
+
+    @Test
+    void shouldReadLinesFromBundleDir(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textbundle");
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(new TextContent(ContentType.MARKDOWN, "# Zażółć\n\ngęślą jaźń"));
+        }
+
+        // When
+        List<String> lines;
+        try (TextBundleDir dir = new TextBundleDir(path);
+             Stream<String> stream = dir.readContent().lines()) {
+            lines = stream.collect(Collectors.toList());
+        }
+
+        // Then
+        assertEquals(Arrays.asList("# Zażółć", "", "gęślą jaźń"), lines);
+    }
+
+    @Test
+    void shouldWriteContentFromReader(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+
+        // When
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, new StringReader("Zażółć gęślą jaźń")));
+        }
+
+        // Then
+        try (TextPackReader reader = new TextPackReader(path);
+             BufferedReader content = reader.readContent().openReader()) {
+            assertEquals("Zażółć gęślą jaźń", content.readLine());
+        }
+    }
+
+    @Test
+    void shouldWriteContentFromInputStream(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textbundle");
+        byte[] bytes = "Sample MD".getBytes(StandardCharsets.UTF_8);
+        TextContent content = new TextContent(ContentType.MARKDOWN, new ByteArrayInputStream(bytes));
+
+        // When
+        try (TextBundleDir dir = new TextBundleDir(path)) {
+            dir.writeContent(content);
+        }
+
+        // Then
+        assertEquals("Sample MD", new String(Files.readAllBytes(path.resolve("text.markdown")), StandardCharsets.UTF_8));
+        assertThrows(IOException.class, content::openInputStream);
+    }
+}
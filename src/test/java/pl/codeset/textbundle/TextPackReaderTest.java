@@ -0,0 +1,334 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextPackReaderTest {
+
+    @Test
+    void shouldReadTextPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("test");
+        try (TextPack file = new TextPack(path)) {
+            file.writeMetaData(metaData);
+            file.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            file.writeAsset(new Asset("test1.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        try (TextPackReader reader = new TextPackReader(path)) {
+            // Then
+            assertEquals(metaData, reader.readMetaData());
+            assertEquals("Sample MD", reader.readContent().getContentAsString());
+            Set<Asset> assets = reader.readAssets();
+            assertEquals(1, assets.size());
+            assertEquals("test1.raw", assets.iterator().next().getFileName());
+            assertArrayEquals("raw-content".getBytes(StandardCharsets.UTF_8), assets.iterator().next().readContent());
+            assertTrue(reader.readAsset("test1.raw").isPresent());
+            assertFalse(reader.readAsset("missing.raw").isPresent());
+        }
+    }
+
+    @Test
+    void shouldReadEntriesFromConcurrentThreads(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        Random random = new Random(3);
+        Map<String, byte[]> assets = new HashMap<>();
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 50; i++) {
+                byte[] content = new byte[1000 + random.nextInt(5000)];
+                random.nextBytes(content);
+                // names of different length give local headers of different length
+                String name = "asset" + i + "-" + new String(new char[i % 7]).replace('\0', 'x') + (i % 2 == 0 ? ".png" : ".txt");
+                assets.put(name, content);
+                writer.writeAsset(new Asset(name, content));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            for (int round = 0; round < 100; round++) {
+                // When
+                try (TextPackReader reader = new TextPackReader(path)) {
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<Map<String, byte[]>>> results = new ArrayList<>();
+                    for (int thread = 0; thread < 8; thread++) {
+                        List<String> names = new ArrayList<>(assets.keySet());
+                        Collections.shuffle(names, new Random(thread));
+                        results.add(executor.submit(() -> {
+                            start.await();
+                            Map<String, byte[]> read = new HashMap<>();
+                            for (String name : names) {
+                                read.put(name, reader.readAsset(name).get().readContent());
+                            }
+                            assertEquals("Sample MD", reader.readContent().getContentAsString());
+                            return read;
+                        }));
+                    }
+                    start.countDown();
+
+                    // Then
+                    for (Future<Map<String, byte[]>> result : results) {
+                        Map<String, byte[]> read = result.get();
+                        for (Map.Entry<String, byte[]> asset : assets.entrySet()) {
+                            assertArrayEquals(asset.getValue(), read.get(asset.getKey()), asset.getKey());
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldSeekInAssetChannel(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeAsset(new Asset("test.raw", "0123456789".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+        try (TextPackReader reader = new TextPackReader(path);
+             SeekableByteChannel channel = reader.openChannel(reader.readAsset("test.raw").get())) {
+            channel.position(5);
+            channel.read(buffer);
+            channel.position(1);
+            buffer.clear();
+            channel.read(buffer);
+
+            // Then
+            assertEquals(10, channel.size());
+            assertEquals(4, channel.position());
+        }
+        assertEquals("123", new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldSeekInStoredAssetChannel(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeAsset(new Asset("test.png", "0123456789".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        try (TextPackReader reader = new TextPackReader(path);
+             SeekableByteChannel channel = reader.openChannel(reader.readAsset("test.png").get())) {
+            channel.position(6);
+            channel.read(buffer);
+        }
+
+        // Then
+        buffer.flip();
+        assertEquals("6789", StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @Test
+    void shouldDescribeAssetsFromCentralDirectory(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        byte[] contentToWrite = "Sample-asset".getBytes(StandardCharsets.UTF_8);
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeAsset(new Asset("test.file", contentToWrite));
+        }
+
+        // When
+        Asset asset;
+        try (TextPackReader reader = new TextPackReader(path)) {
+            asset = reader.readAsset("test.file").get();
+        }
+
+        // Then
+        CRC32 crc = new CRC32();
+        crc.update(contentToWrite);
+        assertEquals(contentToWrite.length, asset.getSize());
+        assertEquals(crc.getValue(), asset.getCrc32());
+    }
+
+    @Test
+    void shouldCopyToOtherBundleNameWithoutInflating(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            writer.writeAsset(new Asset("test.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        Path copy = tempDir.resolve("copy.textpack");
+        try (TextPackReader reader = new TextPackReader(path)) {
+            reader.copyTo(copy, "renamed.textbundle");
+        }
+
+        // Then
+        try (ZipFile source = ZipFile.builder().setPath(path).get();
+             ZipFile target = ZipFile.builder().setPath(copy).get()) {
+            ZipArchiveEntry sourceEntry = source.getEntry("my.textbundle/assets/test.raw");
+            ZipArchiveEntry targetEntry = target.getEntry("renamed.textbundle/assets/test.raw");
+            assertEquals(sourceEntry.getCompressedSize(), targetEntry.getCompressedSize());
+            assertEquals(sourceEntry.getCrc(), targetEntry.getCrc());
+        }
+        try (TextPackReader reader = new TextPackReader(copy)) {
+            assertEquals("Sample MD", reader.readContent().getContentAsString());
+            assertArrayEquals("raw-content".getBytes(StandardCharsets.UTF_8), reader.readAsset("test.raw").get().readContent());
+        }
+    }
+
+    @Test
+    void shouldUnpackToDirectory(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            writer.writeAsset(new Asset("test.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        Path unpacked = tempDir.resolve("unpacked");
+        try (TextPackReader reader = new TextPackReader(path)) {
+            reader.unpackTo(unpacked);
+        }
+
+        // Then
+        assertTrue(Files.exists(unpacked.resolve("info.json")));
+        assertEquals("Sample MD", new String(Files.readAllBytes(unpacked.resolve("text.markdown")), StandardCharsets.UTF_8));
+        assertArrayEquals("raw-content".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(unpacked.resolve("assets/test.raw")));
+    }
+
+    @Test
+    void shouldUnpackConcurrentlyWithinInFlightLimit(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        Random random = new Random(1);
+        Map<String, byte[]> assets = new HashMap<>();
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 40; i++) {
+                byte[] content = new byte[random.nextInt(200_000)];
+                random.nextBytes(content);
+                // stored (png) and compressed (txt) entries, in nested folders
+                String name = "dir" + (i % 3) + "/asset" + i + (i % 2 == 0 ? ".png" : ".txt");
+                assets.put(name, content);
+                writer.writeAsset(new Asset(name, content));
+            }
+            writer.writeDirectory("assets/empty");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        Path unpacked = tempDir.resolve("unpacked");
+        try (TextPackReader reader = new TextPackReader(path)) {
+            reader.unpackTo(unpacked, executor, 100_000);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        assertEquals("Sample MD", new String(Files.readAllBytes(unpacked.resolve("text.markdown")), StandardCharsets.UTF_8));
+        for (Map.Entry<String, byte[]> asset : assets.entrySet()) {
+            assertArrayEquals(asset.getValue(), Files.readAllBytes(unpacked.resolve("assets").resolve(asset.getKey())));
+        }
+        assertTrue(Files.isDirectory(unpacked.resolve("assets/empty")));
+    }
+
+    @Test
+    void shouldRejectEntryLargerThanDeclaredWhenUnpacking(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 20; i++) {
+                writer.writeAsset(new Asset("asset" + i + ".txt", new byte[1000]));
+            }
+        }
+        // declares 10 bytes in the central directory for an entry inflating to 1000
+        byte[] bytes = Files.readAllBytes(path);
+        byte[] name = "my.textbundle/assets/asset7.txt".getBytes(StandardCharsets.US_ASCII);
+        int header = lastIndexOf(bytes, name) - 46;
+        ByteBuffer.wrap(bytes, header + 24, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+        Files.write(path, bytes);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        Path unpacked = tempDir.resolve("unpacked");
+        TextPackValidationException exception;
+        try (TextPackReader reader = new TextPackReader(path)) {
+            exception = assertThrows(TextPackValidationException.class,
+                    () -> reader.unpackTo(unpacked, executor, 2000));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        assertEquals("my.textbundle/assets/asset7.txt", exception.getEntryName());
+        assertFalse(Files.exists(unpacked.resolve("assets/asset7.txt")));
+    }
+
+    @Test
+    void shouldMapStoredAsset(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeAsset(new Asset("test.png", "stored-content".getBytes(StandardCharsets.UTF_8)));
+            writer.writeAsset(new Asset("test.raw", "deflated-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        try (TextPackReader reader = new TextPackReader(path)) {
+            ByteBuffer stored = reader.readAsset("test.png").get().asByteBuffer();
+            ByteBuffer deflated = reader.readAsset("test.raw").get().asByteBuffer();
+
+            // Then
+            assertTrue(stored.isDirect());
+            assertTrue(stored.isReadOnly());
+            assertEquals("stored-content", StandardCharsets.UTF_8.decode(stored).toString());
+            assertEquals("deflated-content", StandardCharsets.UTF_8.decode(deflated).toString());
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte[] pattern) {
+        for (int i = bytes.length - pattern.length; i >= 0; i--) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Pattern not found");
+    }
+}
@@ -3,14 +3,24 @@ package pl.codeset.textbundle;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TextPackTest {
@@ -167,4 +177,173 @@ class TextPackTest {
         assertTrue(Files.exists(unpacked.resolve("assets/test1.raw")));
         assertTrue(Files.exists(unpacked.resolve("info.json")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldUnpackConcurrently(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPack file = new TextPack(path)) {
+            file.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            file.writeAsset(new Asset("nested/deep/test1.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When
+        Path unpacked = tempDir.resolve("unpackedDir");
+        try (TextPack file = new TextPack(path)) {
+            file.unpackTo(unpacked, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        assertTrue(Files.exists(unpacked.resolve("text.markdown")));
+        assertTrue(Files.exists(unpacked.resolve("info.json")));
+        assertEquals("raw-content", new String(Files.readAllBytes(unpacked.resolve("assets/nested/deep/test1.raw")),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteAssetFromFile(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        byte[] contentToWrite = "Sample-asset-from-file".getBytes(StandardCharsets.UTF_8);
+        Path sourceFile = Files.write(tempDir.resolve("source.bin"), contentToWrite);
+
+        // When
+        try (TextPack file = new TextPack(path)) {
+            file.writeAsset(new Asset("test.file", sourceFile));
+        }
+
+        ByteArrayOutputStream readContent = new ByteArrayOutputStream();
+        try (TextPack file = new TextPack(path)) {
+            file.readAssets().iterator().next().writeTo(readContent);
+        }
+
+        // Then
+        assertArrayEquals(contentToWrite, readContent.toByteArray());
+    }
+
+    @Test
+    void shouldDescribeAssetsWithoutReadingThem(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        byte[] contentToWrite = "Sample-asset".getBytes(StandardCharsets.UTF_8);
+        try (TextPack file = new TextPack(path)) {
+            file.writeAsset(new Asset("test.file", contentToWrite));
+        }
+
+        // When
+        Asset asset;
+        try (TextPack file = new TextPack(path)) {
+            asset = file.readAssets().iterator().next();
+        }
+
+        // Then
+        CRC32 crc = new CRC32();
+        crc.update(contentToWrite);
+        assertEquals(contentToWrite.length, asset.getSize());
+        assertEquals(crc.getValue(), asset.getCrc32());
+        assertNotNull(asset.getLastModifiedTime());
+        assertEquals(new Asset("test.file", new byte[0]), asset);
+    }
+
+    @Test
+    void shouldCopyToOtherTextPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPack file = new TextPack(path)) {
+            file.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            file.writeAsset(new Asset("test1.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        Path copy = tempDir.resolve("copy.textpack");
+        Path pendingCopy = tempDir.resolve("pending.textpack");
+        try (TextPack file = new TextPack(path)) {
+            file.copyTo(copy);
+            file.writeAsset(new Asset("test2.raw", "raw-content2".getBytes(StandardCharsets.UTF_8)));
+            file.copyTo(pendingCopy);
+        }
+
+        // Then
+        try (TextPack file = new TextPack(copy)) {
+            assertEquals("Sample MD", file.readContent().getContentAsString());
+            assertEquals(1, file.readAssets().size());
+        }
+        try (TextPack file = new TextPack(pendingCopy)) {
+            assertEquals(2, file.readAssets().size());
+        }
+    }
+
+    @Test
+    void shouldShareOpenPackBetweenThreads(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        // When
+        try (TextPack file = new TextPack(path)) {
+            file.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            for (int i = 0; i < 20; i++) {
+                String fileName = "test" + i + ".raw";
+                tasks.add(executor.submit(() -> {
+                    file.writeAsset(new Asset(fileName, fileName.getBytes(StandardCharsets.UTF_8)));
+                    assertEquals("Sample MD", file.readContent().getContentAsString());
+                    return file.readAssets();
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        try (TextPack file = new TextPack(path)) {
+            assertEquals(20, file.readAssets().size());
+        }
+    }
+
+    @Test
+    void shouldCommitEditInOneRewrite(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPack file = new TextPack(path)) {
+            file.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            file.writeAsset(new Asset("removed.raw", "removed".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        try (TextPack file = new TextPack(path)) {
+            file.writeAsset(new Asset("pending.raw", "pending".getBytes(StandardCharsets.UTF_8)));
+            file.edit()
+                    .writeContent(new TextContent(ContentType.MARKDOWN, "Updated MD"))
+                    .writeAsset(new Asset("added.raw", "added".getBytes(StandardCharsets.UTF_8)))
+                    .removeAsset(new Asset("removed.raw", new byte[0]))
+                    .commit();
+
+            // Then
+            assertEquals("Updated MD", file.readContent().getContentAsString());
+            assertEquals(2, file.readAssets().size());
+        }
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertEquals("Updated MD", reader.readContent().getContentAsString());
+            assertTrue(reader.readAsset("pending.raw").isPresent());
+            assertTrue(reader.readAsset("added.raw").isPresent());
+            assertFalse(reader.readAsset("removed.raw").isPresent());
+        }
+    }
+
+    @Test
+    void shouldRejectAssetPathEscapingBundle(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (TextPack pack = new TextPack(tempDir.resolve("my.textpack"))) {
+
+            // When / Then
+            assertThrows(IllegalStateException.class, () -> pack.writeAsset(new Asset("../../evil.sh", new byte[0])));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextPackUpdaterTest {
+
+    private static final byte[] BIG_ASSET = new byte[256 * 1024];
+
+    @Test
+    void shouldAppendChangesWithoutRewritingArchive(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.setCompressionPolicy(CompressionPolicy.storeExtensions(Collections.singleton("raw")));
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "First content"))
+                    .writeAsset(new Asset("big.raw", BIG_ASSET))
+                    .writeAsset(new Asset("old.raw", "old".getBytes(StandardCharsets.UTF_8)));
+        }
+        long originalSize = Files.size(path);
+        Object originalFileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("updated");
+
+        // When
+        try (TextPackUpdater updater = new TextPackUpdater(path)) {
+            updater.writeContent(new TextContent(ContentType.MARKDOWN, "Second content"))
+                    .writeMetaData(metaData)
+                    .writeAsset(new Asset("new.raw", "new".getBytes(StandardCharsets.UTF_8)))
+                    .removeAsset(new Asset("old.raw", new byte[0]));
+        }
+
+        // Then
+        assertTrue(Files.size(path) < originalSize + 4096);
+        assertEquals(originalFileKey, Files.readAttributes(path, BasicFileAttributes.class).fileKey());
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertEquals("Second content", reader.readContent().getContentAsString());
+            assertEquals(metaData, reader.readMetaData());
+            assertArrayEquals(BIG_ASSET, reader.readAsset("big.raw").get().readContent());
+            assertArrayEquals("new".getBytes(StandardCharsets.UTF_8), reader.readAsset("new.raw").get().readContent());
+            assertFalse(reader.readAsset("old.raw").isPresent());
+        }
+        try (TextPack file = new TextPack(path)) {
+            assertEquals("Second content", file.readContent().getContentAsString());
+            assertEquals(2, file.readAssets().size());
+        }
+        assertEquals(metaData, TextBundles.peekMetaData(path));
+    }
+
+    @Test
+    void shouldCompactWhenMostOfArchiveIsUnreachable(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.setCompressionPolicy(CompressionPolicy.storeExtensions(Collections.singleton("raw")));
+            writer.writeAsset(new Asset("big.raw", BIG_ASSET));
+        }
+
+        // When
+        try (TextPackUpdater updater = new TextPackUpdater(path)) {
+            updater.removeAsset(new Asset("big.raw", new byte[0]));
+        }
+
+        // Then
+        assertTrue(Files.size(path) < 4096);
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertTrue(reader.readAssets().isEmpty());
+            assertEquals(new MetaData(), reader.readMetaData());
+        }
+    }
+
+    @Test
+    void shouldCreateMissingPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("new.textpack");
+
+        // When
+        try (TextPackUpdater updater = new TextPackUpdater(path)) {
+            updater.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+
+        // Then
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertEquals("Sample MD", reader.readContent().getContentAsString());
+        }
+    }
+
+    @Test
+    void shouldRewriteWithStreamContentWhenAppendDoesNotFit(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(path)) {
+            out.putArchiveEntry(new ZipArchiveEntry("my.textbundle/text.markdown"));
+            out.write("First content".getBytes(StandardCharsets.UTF_8));
+            out.closeArchiveEntry();
+            // one entry short of the limit of a directory without zip64 records
+            for (int i = 0; i < ZipDirectory.MAX_ENTRIES - 2; i++) {
+                out.putArchiveEntry(new ZipArchiveEntry("my.textbundle/assets/" + i));
+                out.closeArchiveEntry();
+            }
+        }
+        InputStream content = new ByteArrayInputStream("Second content".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        try (TextPackUpdater updater = new TextPackUpdater(path)) {
+            // the appended metadata entry reaches the limit, so the pack is rewritten after the content was appended
+            updater.writeContent(new TextContent(ContentType.MARKDOWN, content))
+                    .writeMetaData(new MetaData());
+        }
+
+        // Then
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertEquals("Second content", reader.readContent().getContentAsString());
+            assertEquals(ZipDirectory.MAX_ENTRIES, reader.getEntryNames().size());
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextPackValidatorTest {
+
+    @Test
+    void shouldAcceptValidPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "![](assets/image.png)"));
+            writer.writeAsset(new Asset("image.png", new byte[]{1, 2, 3}));
+        }
+
+        // When / Then
+        new TextPackValidator().validate(path);
+    }
+
+    @Test
+    void shouldAcceptAppendedPackWithStaleEntries(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            writer.writeAsset(new Asset("image.png", new byte[]{1, 2, 3}));
+        }
+        try (TextPackUpdater updater = new TextPackUpdater(path)) {
+            updater.writeAsset(new Asset("image.png", new byte[]{4, 5, 6, 7}));
+            updater.commit();
+        }
+
+        // When / Then
+        new TextPackValidator().validate(path);
+    }
+
+    @Test
+    void shouldRejectEntryEscapingBundle(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(path)) {
+            writeEntry(out, "my.textbundle/info.json", "{}".getBytes(StandardCharsets.UTF_8));
+            writeEntry(out, "my.textbundle/text.markdown", new byte[0]);
+            writeEntry(out, "my.textbundle/assets/../../evil.sh", new byte[0]);
+        }
+
+        // When
+        TextPackValidationException exception = assertThrows(TextPackValidationException.class,
+                () -> new TextPackValidator().validate(path));
+
+        // Then
+        assertEquals("my.textbundle/assets/../../evil.sh", exception.getEntryName());
+    }
+
+    @Test
+    void shouldRejectMissingMetaData(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(path)) {
+            writeEntry(out, "my.textbundle/text.markdown", new byte[0]);
+        }
+
+        // When / Then
+        assertThrows(TextPackValidationException.class, () -> new TextPackValidator().validate(path));
+    }
+
+    @Test
+    void shouldRejectHighlyCompressedEntry(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            writer.writeAsset(new Asset("zeros.txt", new byte[10 * 1024 * 1024]));
+        }
+
+        // When
+        TextPackValidationException exception = assertThrows(TextPackValidationException.class,
+                () -> new TextPackValidator().validate(path));
+
+        // Then
+        assertEquals("my.textbundle/assets/zeros.txt", exception.getEntryName());
+    }
+
+    @Test
+    void shouldRejectCorruptedData(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        byte[] asset = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+            writer.writeAsset(new Asset("image.png", asset));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        int offset = indexOf(bytes, asset);
+        bytes[offset] = 'X';
+        Files.write(path, bytes);
+
+        // When
+        TextPackValidationException exception = assertThrows(TextPackValidationException.class,
+                () -> new TextPackValidator().validate(path));
+
+        // Then
+        assertEquals("my.textbundle/assets/image.png", exception.getEntryName());
+    }
+
+    private static void writeEntry(ZipArchiveOutputStream out, String name, byte[] data) throws IOException {
+        out.putArchiveEntry(new ZipArchiveEntry(name));
+        out.write(data);
+        out.closeArchiveEntry();
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Pattern not found");
+    }
+}
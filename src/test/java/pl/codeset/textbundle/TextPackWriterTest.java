@@ -0,0 +1,115 @@
+package pl.codeset.textbundle;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextPackWriterTest {
+
+    @Test
+    void shouldWriteReadableTextPack(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path path = tempDir.resolve("my.textpack");
+        MetaData metaData = new MetaData();
+        metaData.setCreatorIdentifier("test");
+
+        // When
+        try (TextPackWriter writer = new TextPackWriter(path)) {
+            writer.writeMetaData(metaData)
+                    .writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"))
+                    .writeAsset(new Asset("test1.raw", "raw-content".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // Then
+        try (TextPack file = new TextPack(path)) {
+            assertEquals(metaData, file.readMetaData());
+            assertEquals("Sample MD", file.readContent().getContentAsString());
+            Set<Asset> assets = file.readAssets();
+            assertEquals(1, assets.size());
+            assertArrayEquals("raw-content".getBytes(StandardCharsets.UTF_8), assets.iterator().next().readContent());
+        }
+    }
+
+    @Test
+    void shouldWriteToOutputStream(@TempDir Path tempDir) throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        try (TextPackWriter writer = new TextPackWriter(out, "sample.textbundle")) {
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, "Sample MD"));
+        }
+
+        // Then
+        Path path = Files.write(tempDir.resolve("sample.textpack"), out.toByteArray());
+        try (TextPack file = new TextPack(path)) {
+            assertEquals(new MetaData(), file.readMetaData());
+            assertEquals("Sample MD", file.readContent().getContentAsString());
+        }
+    }
+
+    @Test
+    void shouldWriteStoredStreamContentToOutputStream(@TempDir Path tempDir) throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream content = new ByteArrayInputStream("Sample MD".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        try (TextPackWriter writer = new TextPackWriter(out, "sample.textbundle")) {
+            writer.setCompressionPolicy(CompressionPolicy.storeExtensions(Collections.singleton("markdown")));
+            writer.writeContent(new TextContent(ContentType.MARKDOWN, content));
+        }
+
+        // Then
+        Path path = Files.write(tempDir.resolve("sample.textpack"), out.toByteArray());
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertEquals("Sample MD", reader.readContent().getContentAsString());
+        }
+    }
+
+    @Test
+    void shouldRejectAssetOutsideBundle(@TempDir Path tempDir) throws IOException {
+        try (TextPackWriter writer = new TextPackWriter(tempDir.resolve("my.textpack"))) {
+            assertThrows(IllegalStateException.class,
+                    () -> writer.writeAsset(new Asset("../../evil.raw", new byte[0])));
+        }
+    }
+
+    @Test
+    void shouldStoreAlreadyCompressedAssets(@TempDir Path tempDir) throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] image = "not-really-a-jpeg".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        try (TextPackWriter writer = new TextPackWriter(out, "sample.textbundle")) {
+            writer.writeAsset(new Asset("image.JPG", image))
+                    .writeAsset(new Asset("notes.txt", image));
+        }
+
+        // Then
+        Path path = Files.write(tempDir.resolve("sample.textpack"), out.toByteArray());
+        try (ZipFile zipFile = ZipFile.builder().setPath(path).get()) {
+            assertEquals(ZipArchiveEntry.STORED, zipFile.getEntry("sample.textbundle/assets/image.JPG").getMethod());
+            assertEquals(ZipArchiveEntry.DEFLATED, zipFile.getEntry("sample.textbundle/assets/notes.txt").getMethod());
+        }
+        try (TextPackReader reader = new TextPackReader(path)) {
+            assertArrayEquals(image, reader.readAsset("image.JPG").get().readContent());
+        }
+    }
+}